@@ -0,0 +1,106 @@
+package evolution;
+
+/**
+ * Decides the mutation rate and the maximum mutation change used to create each
+ * new generation from how the previous generations did, instead of always using
+ * the constants. Supports three modes:
+ * FIXED always uses the mutation rate and change of the config.
+ * ONE_FIFTH follows the 1/5th success rule of evolution strategies: if more than
+ * a fifth of the mutated birds beat the fitness of their parent the mutations are
+ * made stronger to search further, and if fewer did they are made weaker to refine.
+ * Since every generation flies new courses, the parents are flown again on the
+ * children's courses so the two are compared on the same games.
+ * STAGNATION keeps the configured mutations while the best fitness keeps improving,
+ * but boosts them once it has not improved for a number of generations so the
+ * population can escape from where it is stuck.
+ */
+public class AdaptiveMutation {
+    private Mode _mode;
+    private int _maxFitness;
+    private double _baseRate, _baseChange;
+    private double _rate, _change;
+    private int _bestFit, _stagnantGenerations;
+
+    /**
+     * Constructor takes the mode and the config, which gives the mutations to
+     * start from and the fitness at which the game is solved, which never counts
+     * as stagnating.
+     */
+    public AdaptiveMutation(Mode mode, Config config) {
+        _mode = mode;
+        _maxFitness = config.getMaxFitness();
+        _baseRate = config.getMutationRate();
+        _baseChange = config.getMutationChange();
+        _rate = _baseRate;
+        _change = _baseChange;
+        _bestFit = 0;
+        _stagnantGenerations = 0;
+    }
+
+    /**
+     * Called after every generation is evaluated. Takes the fraction of the birds
+     * created by mutation that beat the fitness of their parent, the number of
+     * those birds, and the best fitness of the generation, and updates the
+     * mutations for the next generation. The 1/5th rule leaves the mutations as
+     * they are after a generation without any such birds, such as the first.
+     */
+    public void update(double successRate, int numChildren, int bestFit) {
+        if (_mode == Mode.ONE_FIFTH && numChildren > 0) {
+            if (successRate > Constants.MUTATION_TARGET_SUCCESS) {
+                this.scale(Constants.MUTATION_ADAPT_FACTOR);
+            }
+            else if (successRate < Constants.MUTATION_TARGET_SUCCESS) {
+                this.scale(1 / Constants.MUTATION_ADAPT_FACTOR);
+            }
+        }
+        else if (_mode == Mode.STAGNATION) {
+            if (bestFit > _bestFit || bestFit >= _maxFitness) {
+                _bestFit = bestFit;
+                _stagnantGenerations = 0;
+                _rate = _baseRate;
+                _change = _baseChange;
+            }
+            else if (++_stagnantGenerations >= Constants.STAGNATION_GENERATIONS) {
+                _rate = Math.min(1, _baseRate * Constants.STAGNATION_BOOST);
+                _change = _baseChange * Constants.STAGNATION_BOOST;
+            }
+        }
+    }
+
+    /**
+     * Multiplies the rate and the change by the factor, keeping them within their limits.
+     */
+    private void scale(double factor) {
+        _rate = Math.max(Constants.MIN_MUTATION_RATE, Math.min(1, _rate * factor));
+        _change = Math.max(Constants.MIN_MUTATION_CHANGE, Math.min(Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN,
+                _change * factor));
+    }
+
+    /**
+     * Returns the chance of each weight being mutated.
+     */
+    public double getRate() {
+        return _rate;
+    }
+
+    /**
+     * Returns the maximum amount a mutated weight can change by.
+     */
+    public double getChange() {
+        return _change;
+    }
+
+    /**
+     * Returns the mode.
+     */
+    public Mode getMode() {
+        return _mode;
+    }
+
+    /**
+     * How the mutations are adapted.
+     */
+    public enum Mode {
+        FIXED, ONE_FIFTH, STAGNATION
+    }
+}
@@ -0,0 +1,16 @@
+package evolution;
+
+/**
+ * Interface for anything that can decide when a bird jumps. Unlike the Flappable
+ * interface it knows nothing about JavaFX, so the same agent can be flown by the
+ * headless Simulation or by an AgentBird in the game. Takes the same three inputs
+ * a SmartBird's neural network does. Agents are created by an AgentProvider and
+ * are not expected to be thread safe, each game needs an agent of its own.
+ */
+public interface Agent {
+    public void reset();
+
+    public boolean jump(double birdY, double pipeY, double pipeX);
+
+    public String getDescription();
+}
@@ -0,0 +1,62 @@
+package evolution;
+
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+
+/**
+ * Subclass of Bird flown by an Agent, which lets any registered kind of agent play
+ * the game, such as a replay being played back or the heuristic baseline. On every
+ * tick it passes the same inputs as a SmartBird to the agent and jumps if the agent
+ * says so. Resets the agent every time the game resets.
+ */
+public class AgentBird extends Bird {
+    private Agent _agent;
+
+    /**
+     * Constructor takes the game pane, the pipes and the config just like the
+     * parent class as well as the agent that flies the bird.
+     */
+    public AgentBird(Pane gamePane, ArrayList<Pipe> pipes, Config config, Agent agent) {
+        super(gamePane, pipes, config);
+
+        _agent = agent;
+        _agent.reset();
+    }
+
+    /**
+     * Overrides parent class method. Calls the parent class method if the agent
+     * decides to jump on this tick. The bird is first checked for death, just
+     * like each bird of a population and the Simulation check it between falling
+     * and jumping, so a bird that has fallen into a pipe dies on this tick instead
+     * of jumping out of it and a replay follows its recorded game.
+     */
+    @Override
+    public void jump() {
+        if (this.crashed()) {
+            _isDead = true;
+            return;
+        }
+        Pipe nearestPipe = this.getNearestPipe();
+        if (_agent.jump(this.getY(), nearestPipe.getGapY(), nearestPipe.getX())) {
+            super.jump();
+        }
+    }
+
+    /**
+     * Resets the bird and the agent.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        _agent.reset();
+    }
+
+    /**
+     * Returns the parent class stats along with the description of the agent.
+     */
+    @Override
+    public GameStats getStats() {
+        return super.getStats().add("Agent", _agent.getDescription());
+    }
+}
@@ -0,0 +1,17 @@
+package evolution;
+
+import java.io.IOException;
+
+/**
+ * Service interface for creating agents, found with a ServiceLoader by the Agents
+ * class. New kinds of agents can be added by implementing this interface and listing
+ * the implementation in META-INF/services/evolution.AgentProvider. Each provider
+ * has a name it is selected by and takes a single argument, such as a file to load.
+ */
+public interface AgentProvider {
+    public String getName();
+
+    public String getUsage();
+
+    public Agent create(String argument, Simulation.Physics physics) throws IOException;
+}
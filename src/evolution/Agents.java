@@ -0,0 +1,57 @@
+package evolution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the agent providers found on the class path. Agents are selected
+ * with a spec made of the provider's name and its argument separated by a colon,
+ * for example network:best.genome or heuristic.
+ */
+public class Agents {
+
+    /**
+     * Returns every provider listed in META-INF/services/evolution.AgentProvider.
+     */
+    public static List<AgentProvider> getProviders() {
+        List<AgentProvider> providers = new ArrayList<AgentProvider>();
+        for (AgentProvider provider: ServiceLoader.load(AgentProvider.class)) {
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    /**
+     * Returns the provider with the given name.
+     */
+    public static AgentProvider getProvider(String name) {
+        StringBuilder known = new StringBuilder();
+        for (AgentProvider provider: Agents.getProviders()) {
+            if (provider.getName().equals(name)) {
+                return provider;
+            }
+            known.append(' ').append(provider.getUsage());
+        }
+        throw new IllegalArgumentException("Unknown agent " + name + ", known agents:" + known);
+    }
+
+    /**
+     * Creates an agent from a spec of the provider's name, optionally followed by
+     * a colon and the argument passed to the provider.
+     */
+    public static Agent create(String spec, Simulation.Physics physics) throws IOException {
+        int colon = spec.indexOf(':');
+        String argument = colon == -1 ? null : spec.substring(colon + 1);
+        return Agents.getProvider(Agents.getName(spec)).create(argument, physics);
+    }
+
+    /**
+     * Returns the name of the provider in an agent spec.
+     */
+    public static String getName(String spec) {
+        int colon = spec.indexOf(':');
+        return colon == -1 ? spec : spec.substring(0, colon);
+    }
+}
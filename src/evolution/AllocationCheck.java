@@ -0,0 +1,300 @@
+package evolution;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+/**
+ * Command line entry point that guards the allocation free hot path of headless
+ * training. Flies a fixed number of birds on seeded courses on the calling thread
+ * and measures the bytes the thread allocates, using the JVM's per thread
+ * allocation counter, for each part of the simulation loop: the game itself with
+ * a rule based agent, the network's forward propagation and the off-heap store's,
+ * and whole generations of evaluation and reproduction. It also measures the heap
+ * still in use after a generation once the garbage has been collected. Every
+ * measurement is compared with its budget and the check exits with status 1 if any
+ * is over, so it can be run as a build step to catch allocations creeping back in.
+ *
+ * Each measurement is taken a few times after the code has been warmed up and the
+ * lowest is kept, so the compiler has had a chance to remove allocations that do
+ * not escape and a collection during one round does not count.
+ *
+ * Usage: java -cp flappybird.jar evolution.AllocationCheck [--population n] [--ticks n]
+ * [--generations n] [--seed n]
+ */
+public class AllocationCheck {
+    // bytes a single game may allocate per tick, for the game loop and for each forward propagation
+    private static final double TICK_BUDGET = 0.05;
+    // bytes a generation of the off-heap store may allocate per bird: the selection keys and the stats'
+    // copy of the fitness, about 13 bytes, since every other array is sized once per population
+    private static final double DIRECT_GENERATION_BUDGET = 24;
+    // bytes a generation of the heap store may allocate per bird: the same arrays plus the children's
+    // new networks, about 420 bytes
+    private static final double HEAP_GENERATION_BUDGET = 512;
+    // bytes of heap still in use after a generation whatever the size of the population: the population's
+    // own objects and the arrays sized by the network, about 9 KB
+    private static final double RETAINED_FIXED_BUDGET = 16384;
+    // bytes of heap per bird still in use after a generation with the off-heap store on top of the fixed
+    // bytes: the score and racing buffers, the cached agents and both diversity indexes, about 120 bytes
+    private static final double DIRECT_RETAINED_BUDGET = 144;
+    // bytes of heap per bird still in use after a generation with the heap store on top of the fixed
+    // bytes, about 490 bytes
+    private static final double HEAP_RETAINED_BUDGET = 576;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 3;
+
+    private int _populationSize = 2000;
+    private int _maxTicks = 2000;
+    private int _generations = 3;
+    private long _seed = 0;
+    private com.sun.management.ThreadMXBean _threads;
+    private boolean _passed = true;
+    // the population whose retained heap is being measured, held in a field so that it stays reachable
+    // until the measurement is done and the compiler cannot collect it early because it is no longer used
+    private HeadlessPopulation _measured;
+
+    /**
+     * Constructor takes the command line arguments and sets the options they specify.
+     * Options that are not specified keep their defaults.
+     */
+    public AllocationCheck(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--population":
+                    _populationSize = Options.parsePositive(option, value);
+                    break;
+                case "--ticks":
+                    _maxTicks = Options.parsePositive(option, value);
+                    break;
+                case "--generations":
+                    _generations = Options.parsePositive(option, value);
+                    break;
+                case "--seed":
+                    _seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            throw new IllegalStateException("This JVM cannot count the bytes allocated by a thread");
+        }
+        _threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!_threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM cannot count the bytes allocated by a thread");
+        }
+        _threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * A piece of the simulation loop whose allocations are measured. Returns the
+     * number of ticks or birds the allocations are divided by.
+     */
+    private interface Workload {
+        long run();
+    }
+
+    /**
+     * Runs every check and prints its measurement and budget. Returns whether
+     * every measurement was within its budget.
+     */
+    public boolean check() {
+        Config config = new Config().with(Config.POPULATION_SIZE, String.valueOf(_populationSize))
+                .with(Config.MAX_FITNESS, String.valueOf(_maxTicks));
+        Random random = new Random(_seed);
+        final Course course = new Course(random.nextLong(), _maxTicks);
+        System.out.println("Checking allocations with " + _populationSize + " birds on a " + _maxTicks
+                + " tick course (seed " + _seed + ")");
+
+        final HeuristicAgent heuristic = new HeuristicAgent(Constants.HEURISTIC_MARGIN);
+        for (final Simulation.Physics physics: Simulation.Physics.values()) {
+            for (final boolean eventDriven: new boolean[] {false, true}) {
+                final Simulation simulation = new Simulation(course, config, physics, eventDriven);
+                String name = "game loop, " + physics.name().toLowerCase() + " physics, "
+                        + (eventDriven ? "event" : "tick") + " collisions";
+                this.checkBudget(name, "bytes/tick", TICK_BUDGET, new Workload() {
+                    @Override
+                    public long run() {
+                        long ticks = 0;
+                        for (int i = 0; i < _populationSize; i++) {
+                            ticks += simulation.run(heuristic) + 1;
+                        }
+                        return ticks;
+                    }
+                });
+            }
+        }
+
+        final NeuralNetwork[] networks = new NeuralNetwork[_populationSize];
+        for (int i = 0; i < networks.length; i++) {
+            networks[i] = new NeuralNetwork(config, random);
+        }
+        this.checkBudget("NeuralNetwork.forwardProp", "bytes/tick", TICK_BUDGET,
+                this.forwardProp(networks, false));
+        this.checkBudget("NeuralNetwork.forwardPropStrict", "bytes/tick", TICK_BUDGET,
+                this.forwardProp(networks, true));
+
+        final DirectGenomeStore store = new DirectGenomeStore(config);
+        final Agent[] agents = new Agent[_populationSize];
+        for (int i = 0; i < agents.length; i++) {
+            store.randomize(i, random);
+            agents[i] = store.getAgent(i, false);
+        }
+        this.checkBudget("DirectGenomeStore forward propagation", "bytes/tick", TICK_BUDGET, new Workload() {
+            @Override
+            public long run() {
+                return AllocationCheck.this.jumpEveryTick(agents);
+            }
+        });
+
+        this.checkGenerations(config, new DirectGenomeStore(config), course, DIRECT_GENERATION_BUDGET,
+                DIRECT_RETAINED_BUDGET);
+        this.checkGenerations(config, new HeapGenomeStore(config), course, HEAP_GENERATION_BUDGET,
+                HEAP_RETAINED_BUDGET);
+
+        System.out.println(_passed ? "All allocations are within budget" : "Allocations are over budget");
+        return _passed;
+    }
+
+    /**
+     * Returns a workload that runs the forward propagation of every network on
+     * the inputs of a bird on every tick of a game.
+     */
+    private Workload forwardProp(final NeuralNetwork[] networks, final boolean strict) {
+        final Agent[] agents = new Agent[networks.length];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = new NetworkAgent(networks[i], strict);
+        }
+        return new Workload() {
+            @Override
+            public long run() {
+                return AllocationCheck.this.jumpEveryTick(agents);
+            }
+        };
+    }
+
+    /**
+     * Asks every agent whether to jump once per tick of the course with inputs
+     * that sweep the range of the game, so that the cost of the agents is measured
+     * without the games ending early. Returns the number of decisions.
+     */
+    private long jumpEveryTick(Agent[] agents) {
+        long decisions = 0;
+        int jumps = 0;
+        for (Agent agent: agents) {
+            for (int tick = 0; tick < _maxTicks; tick++) {
+                double birdY = Constants.BIRD_R + tick % (int) Constants.GAME_HEIGHT;
+                double pipeY = Constants.PIPE_GAP_BUFFER + tick % 400;
+                double pipeX = Constants.SCENE_WIDTH - tick % (int) Constants.SCENE_WIDTH;
+                if (agent.jump(birdY, pipeY, pipeX)) {
+                    jumps++;
+                }
+                decisions++;
+            }
+        }
+        // uses the decisions so the compiler cannot skip them
+        return jumps >= 0 ? decisions : 0;
+    }
+
+    /**
+     * Checks the bytes allocated per bird by whole generations of a population
+     * using the given store, evaluated on the calling thread and then reset, and
+     * the heap still in use per bird once a generation has finished. The heap
+     * still in use includes the population's fixed overhead, so its budget is the
+     * fixed budget spread over the birds plus the given budget per bird.
+     */
+    private void checkGenerations(Config config, GenomeStore store, final Course course, double generationBudget,
+            double retainedBudget) {
+        String name = store.getName() + " store";
+        long baseline = AllocationCheck.usedHeapAfterCollection();
+        final HeadlessPopulation population = new HeadlessPopulation(config, new Random(_seed),
+                new HeadlessPopulation.Settings().withGenomeStore(store));
+        final Simulation simulation = new Simulation(course, config, Simulation.Physics.DOUBLE, true);
+        this.checkBudget("generation, " + name, "bytes/bird", generationBudget, new Workload() {
+            @Override
+            public long run() {
+                for (int generation = 0; generation < _generations; generation++) {
+                    try {
+                        population.evaluate(simulation, null, 1);
+                    }
+                    catch (InterruptedException e) {
+                        throw new IllegalStateException("Interrupted while evaluating", e);
+                    }
+                    population.reset();
+                }
+                return (long) _generations * _populationSize;
+            }
+        });
+
+        _measured = population;
+        double retained = (double) (AllocationCheck.usedHeapAfterCollection() - baseline) / _populationSize;
+        _measured = null;
+        this.report("retained heap, " + name, "bytes/bird", retained,
+                retainedBudget + RETAINED_FIXED_BUDGET / _populationSize);
+    }
+
+    /**
+     * Measures the bytes the calling thread allocates per unit of the workload,
+     * keeping the lowest of a few rounds after warming up, and reports it against
+     * the budget.
+     */
+    private void checkBudget(String name, String unit, double budget, Workload workload) {
+        long thread = Thread.currentThread().getId();
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            workload.run();
+        }
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = _threads.getThreadAllocatedBytes(thread);
+            long units = workload.run();
+            long allocated = _threads.getThreadAllocatedBytes(thread) - before;
+            lowest = Math.min(lowest, (double) allocated / Math.max(1, units));
+        }
+        this.report(name, unit, lowest, budget);
+    }
+
+    /**
+     * Prints a measurement and whether it is within its budget, and records a
+     * failure if it is not.
+     */
+    private void report(String name, String unit, double measured, double budget) {
+        boolean passed = measured <= budget;
+        _passed &= passed;
+        System.out.printf("%s  %-52s %10.3f %s (budget %.3f)%n", passed ? "PASS" : "FAIL", name, measured, unit, budget);
+    }
+
+    /**
+     * Collects the garbage a few times and returns the heap still in use.
+     */
+    private static long usedHeapAfterCollection() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    public static void main(String[] argv) {
+        AllocationCheck check;
+        try {
+            check = new AllocationCheck(argv);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp flappybird.jar evolution.AllocationCheck [--population n] [--ticks n]"
+                    + " [--generations n] [--seed n]");
+            System.exit(2);
+            return;
+        }
+        if (!check.check()) {
+            System.exit(1);
+        }
+    }
+}
@@ -4,16 +4,35 @@ import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
 /**
   * Top level class that sets up the stage and the scene and instantiates the PaneOrganizer.
+  * A replay can be passed to the program with --replay=path to watch it from the start menu,
+  * and any registered agent with --agent=name:argument. Settings can be read from a
+  * properties file with --config=path and each one overridden with --key=value, such
+  * as --population-size=100.
   */
 
 public class App extends Application {
 
     @Override
-    public void start(Stage stage) {
+    public void start(Stage stage) throws IOException {
         // Create top-level object, set up the scene, and show the stage here.
-        PaneOrganizer organizer = new PaneOrganizer();
+        String replayPath = this.getParameters().getNamed().get("replay");
+        Replay replay = replayPath != null ? new Replay(Paths.get(replayPath)) : null;
+        // the game always plays with double physics, so a fixed point replay would not follow its recorded game
+        if (replay != null && replay.getPhysics() != Simulation.Physics.DOUBLE) {
+            throw new IllegalArgumentException(replayPath + " was recorded with " + replay.getPhysics().name().toLowerCase()
+                    + " physics, which only the Evaluator can play back (--agent replay:" + replayPath + " --physics "
+                    + replay.getPhysics().name().toLowerCase() + ")");
+        }
+        String agentSpec = this.getParameters().getNamed().get("agent");
+        Agent agent = agentSpec != null ? Agents.create(agentSpec, Simulation.Physics.DOUBLE) : null;
+        PaneOrganizer organizer = new PaneOrganizer(replay, agent, this.loadConfig());
         Scene scene = new Scene(organizer.getRoot(), Constants.SCENE_WIDTH, Constants.SCENE_HEIGHT);
         stage.setScene(scene);
         stage.setTitle("Evolution");
@@ -21,6 +40,22 @@ public class App extends Application {
         stage.show();
     }
 
+    /**
+     * Loads the config from the file given with --config, if any, and applies the
+     * named parameters whose names are settings on top of it.
+     */
+    private Config loadConfig() throws IOException {
+        Map<String, String> named = this.getParameters().getNamed();
+        Properties overrides = new Properties();
+        for (String key: Config.getKeys()) {
+            if (named.containsKey(key)) {
+                overrides.setProperty(key, named.get(key));
+            }
+        }
+        String configPath = named.get("config");
+        return Config.load(configPath != null ? Paths.get(configPath) : null, overrides);
+    }
+
     /*
     * Here is the mainline! No need to change this.
     */
@@ -1,8 +1,6 @@
 package evolution;
 
-import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
-import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
@@ -25,26 +23,25 @@ public class Bird implements Flappable {
     protected boolean _isDead;
     private ArrayList<Pipe> _pipes;
     private int _score, _highScore;
-    private Label _scoreLabel, _HSLabel;
+    private double _duration;
 
     /**
      * Constructor takes the game pane as a parameter to add shapes to. It also takes
      * the list of pipes from the game class so the bird can get the nearest pipe,
-     * check for collisions, and update the score within the bird class.
+     * check for collisions, and update the score within the bird class, and the
+     * config whose tick length the bird falls with.
      */
-    public Bird(Pane gamePane, ArrayList<Pipe> pipes) {
+    public Bird(Pane gamePane, ArrayList<Pipe> pipes, Config config) {
         _gamePane = gamePane;
         this.createShapes();
 
         _pipes = pipes;
+        _duration = config.getDuration();
 
         _highScore = 0;
         _score = 0;
         _vy = 0;
         _isDead = false;
-
-        _scoreLabel = new Label("Score: " + _score);
-        _HSLabel = new Label("High score: " + _highScore);
     }
 
     /**
@@ -73,13 +70,13 @@ public class Bird implements Flappable {
     }
 
     /**
-     * Called on every timeline tick to make the bird fall with gravity. Stops
+     * Called on every tick of the game loop to make the bird fall with gravity. Stops
      * the bird from going up further when it hits the top of the window.
      */
     @Override
     public void moveY() {
-        _vy = _vy + Constants.GRAVITY * Constants.DURATION;
-        double newY = _body.getCenterY() + _vy * Constants.DURATION;
+        _vy = _vy + Constants.GRAVITY * _duration;
+        double newY = _body.getCenterY() + _vy * _duration;
 
         if (newY <= Constants.BIRD_R) {
             _vy = 0;
@@ -128,6 +125,14 @@ public class Bird implements Flappable {
         return this.getNearestPipe().hits(_body);
     }
 
+    /**
+     * Returns whether the bird has collided with a pipe or fallen off the screen,
+     * without updating its score.
+     */
+    protected boolean crashed() {
+        return this.hits() || this.getY() > Constants.GAME_HEIGHT + Constants.BIRD_R;
+    }
+
     /**
      * Checks if the bird is dead if it has collided with a pipe or fallen off the screen
      * and returns a boolean accordingly. If the bird is not dead, it updates its
@@ -137,7 +142,7 @@ public class Bird implements Flappable {
     public boolean isDead() {
         if (!_isDead) {
             this.updateScore();
-            if (this.hits() || this.getY() > Constants.GAME_HEIGHT + Constants.BIRD_R) {
+            if (this.crashed()) {
                 _isDead = true;
             }
         }
@@ -157,11 +162,9 @@ public class Bird implements Flappable {
         if (Constants.BIRD_X <= this.getNearestPipe().getX() + Constants.PIPE_WIDTH
         && Constants.BIRD_X > this.getNearestPipe().getX() + Constants.PIPE_WIDTH + Constants.SCROLL_SPEED) {
             _score++;
-            _scoreLabel.setText("Score: " + _score);
         }
         if (_score > _highScore) {
             _highScore = _score;
-            _HSLabel.setText("High score: " + _highScore);
         }
     }
 
@@ -178,18 +181,15 @@ public class Bird implements Flappable {
             shape.setTranslateY(0);
         }
         _score = 0;
-        _scoreLabel.setText("Score: " + _score);
         _vy = 0;
         _isDead = false;
     }
 
     /**
-     * Returns a pane with all of the relevant stats for the manual game.
+     * Returns all of the relevant stats for the manual game.
      */
     @Override
-    public VBox getStats() {
-        VBox statsPane = new VBox();
-        statsPane.getChildren().addAll(_scoreLabel, _HSLabel);
-        return statsPane;
+    public GameStats getStats() {
+        return new GameStats().add("Score", _score).add("High score", _highScore);
     }
 }
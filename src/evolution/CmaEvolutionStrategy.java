@@ -0,0 +1,319 @@
+package evolution;
+
+import java.util.Random;
+
+/**
+ * Optimizer that follows the covariance matrix adaptation evolution strategy
+ * (CMA-ES). Each generation is sampled from a multivariate normal distribution
+ * around a mean genome. The best half of the generation moves the mean, and the
+ * steps that worked are used to reshape the distribution's covariance matrix and
+ * to grow or shrink its overall step size, so over time the birds are sampled
+ * along the directions in which the fitness improves. Follows the standard
+ * formulation of the algorithm with the default parameters for the number of
+ * weights and birds. All of the linear algebra is done on primitive arrays since
+ * networks only have a couple dozen weights; the eigendecomposition of the
+ * covariance matrix needed to sample from it uses the Jacobi method.
+ */
+public class CmaEvolutionStrategy implements Optimizer {
+    private Random _random;
+    private int _n, _size, _mu;
+    private double[] _weights;
+    private double _muEff, _cc, _cs, _c1, _cmu, _damps, _chiN;
+
+    private double[] _mean;
+    private double _sigma;
+    private double[] _pc, _ps;
+    private double[][] _c, _b, _invSqrtC;
+    private double[] _d;
+    private double[][] _genomes;
+    private long _numEvaluated, _eigenEvaluated;
+
+    /**
+     * Constructor takes the config, which gives the number of birds in each
+     * generation and the size of their networks, and the random number generator
+     * used for the initial mean and all of the samples.
+     */
+    public CmaEvolutionStrategy(Config config, Random random) {
+        _random = random;
+        _size = config.getPopulationSize();
+        _mean = new NeuralNetwork(config, random).getWeights();
+        _n = _mean.length;
+        _sigma = Constants.CMA_SIGMA;
+
+        // recombination weights of the best half of the generation
+        _mu = Math.max(1, _size / 2);
+        _weights = new double[_mu];
+        double sum = 0;
+        for (int i = 0; i < _mu; i++) {
+            _weights[i] = Math.log(_mu + 0.5) - Math.log(i + 1);
+            sum += _weights[i];
+        }
+        double sumSquares = 0;
+        for (int i = 0; i < _mu; i++) {
+            _weights[i] /= sum;
+            sumSquares += _weights[i] * _weights[i];
+        }
+        _muEff = 1 / sumSquares;
+
+        // learning rates of the evolution paths, the covariance matrix and the step size
+        _cc = (4 + _muEff / _n) / (_n + 4 + 2 * _muEff / _n);
+        _cs = (_muEff + 2) / (_n + _muEff + 5);
+        _c1 = 2 / ((_n + 1.3) * (_n + 1.3) + _muEff);
+        _cmu = Math.min(1 - _c1, 2 * (_muEff - 2 + 1 / _muEff) / ((_n + 2) * (_n + 2) + _muEff));
+        _damps = 1 + 2 * Math.max(0, Math.sqrt((_muEff - 1) / (_n + 1)) - 1) + _cs;
+        // expected length of a standard normal vector
+        _chiN = Math.sqrt(_n) * (1 - 1.0 / (4 * _n) + 1.0 / (21.0 * _n * _n));
+
+        _pc = new double[_n];
+        _ps = new double[_n];
+        _c = CmaEvolutionStrategy.identity(_n);
+        _b = CmaEvolutionStrategy.identity(_n);
+        _invSqrtC = CmaEvolutionStrategy.identity(_n);
+        _d = new double[_n];
+        for (int i = 0; i < _n; i++) {
+            _d[i] = 1;
+        }
+    }
+
+    /**
+     * Samples the packed weights of the next generation from the current
+     * distribution: the mean plus the step size times B * D * z for a standard
+     * normal vector z, where B and D are the eigenvectors and the square roots of
+     * the eigenvalues of the covariance matrix.
+     */
+    @Override
+    public double[][] ask() {
+        _genomes = new double[_size][_n];
+        double[] scaled = new double[_n];
+        for (double[] genome: _genomes) {
+            for (int i = 0; i < _n; i++) {
+                scaled[i] = _d[i] * _random.nextGaussian();
+            }
+            for (int i = 0; i < _n; i++) {
+                double sum = 0;
+                for (int j = 0; j < _n; j++) {
+                    sum += _b[i][j] * scaled[j];
+                }
+                genome[i] = _mean[i] + _sigma * sum;
+            }
+        }
+        return _genomes;
+    }
+
+    /**
+     * Takes the fitness of the generation created by the last call to ask and
+     * updates the mean, the evolution paths, the covariance matrix and the step
+     * size. Birds with equal fitness are ranked by how far they missed the gap.
+     */
+    @Override
+    public void tell(int[] fitness, double[] misses) {
+        int[] order = Selection.rank(fitness, misses);
+        _numEvaluated += _size;
+
+        double[] oldMean = _mean.clone();
+        _mean = new double[_n];
+        for (int k = 0; k < _mu; k++) {
+            double[] genome = _genomes[order[k]];
+            for (int i = 0; i < _n; i++) {
+                _mean[i] += _weights[k] * genome[i];
+            }
+        }
+
+        double[] step = new double[_n];
+        for (int i = 0; i < _n; i++) {
+            step[i] = (_mean[i] - oldMean[i]) / _sigma;
+        }
+
+        // conjugate evolution path, which decides the step size
+        double[] whitened = CmaEvolutionStrategy.multiply(_invSqrtC, step);
+        double psScale = Math.sqrt(_cs * (2 - _cs) * _muEff);
+        double psLength = 0;
+        for (int i = 0; i < _n; i++) {
+            _ps[i] = (1 - _cs) * _ps[i] + psScale * whitened[i];
+            psLength += _ps[i] * _ps[i];
+        }
+        psLength = Math.sqrt(psLength);
+
+        // stalls the covariance path while the step size is growing quickly
+        double generations = (double) _numEvaluated / _size;
+        boolean hsig = psLength / Math.sqrt(1 - Math.pow(1 - _cs, 2 * generations)) / _chiN < 1.4 + 2.0 / (_n + 1);
+
+        double pcScale = hsig ? Math.sqrt(_cc * (2 - _cc) * _muEff) : 0;
+        for (int i = 0; i < _n; i++) {
+            _pc[i] = (1 - _cc) * _pc[i] + pcScale * step[i];
+        }
+
+        this.updateCovariance(order, oldMean, hsig);
+
+        _sigma *= Math.exp((_cs / _damps) * (psLength / _chiN - 1));
+
+        // the eigendecomposition is only worth redoing every few generations
+        if (_numEvaluated - _eigenEvaluated > _size / (_c1 + _cmu) / _n / 10) {
+            _eigenEvaluated = _numEvaluated;
+            this.decompose();
+        }
+    }
+
+    /**
+     * Updates the covariance matrix with the rank one update from the evolution
+     * path and the rank mu update from the steps of the best half of the generation.
+     */
+    private void updateCovariance(int[] order, double[] oldMean, boolean hsig) {
+        double[][] steps = new double[_mu][_n];
+        for (int k = 0; k < _mu; k++) {
+            double[] genome = _genomes[order[k]];
+            for (int i = 0; i < _n; i++) {
+                steps[k][i] = (genome[i] - oldMean[i]) / _sigma;
+            }
+        }
+
+        double keep = 1 - _c1 - _cmu;
+        double correction = hsig ? 0 : _c1 * _cc * (2 - _cc);
+        for (int i = 0; i < _n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double rankMu = 0;
+                for (int k = 0; k < _mu; k++) {
+                    rankMu += _weights[k] * steps[k][i] * steps[k][j];
+                }
+                double value = keep * _c[i][j] + _c1 * _pc[i] * _pc[j] + correction * _c[i][j] + _cmu * rankMu;
+                _c[i][j] = value;
+                _c[j][i] = value;
+            }
+        }
+    }
+
+    /**
+     * Recomputes B, D and C^-1/2 from the covariance matrix.
+     */
+    private void decompose() {
+        double[][] a = new double[_n][];
+        for (int i = 0; i < _n; i++) {
+            a[i] = _c[i].clone();
+        }
+        _b = CmaEvolutionStrategy.jacobi(a);
+        for (int i = 0; i < _n; i++) {
+            // the diagonal of a now holds the eigenvalues, which are never negative in theory
+            _d[i] = Math.sqrt(Math.max(a[i][i], 1e-20));
+        }
+        for (int i = 0; i < _n; i++) {
+            for (int j = 0; j < _n; j++) {
+                double sum = 0;
+                for (int k = 0; k < _n; k++) {
+                    sum += _b[i][k] / _d[k] * _b[j][k];
+                }
+                _invSqrtC[i][j] = sum;
+            }
+        }
+    }
+
+    /**
+     * Diagonalizes the given symmetric matrix in place with cyclic Jacobi rotations
+     * and returns the matrix whose columns are its eigenvectors. Afterwards the
+     * diagonal of the given matrix holds the eigenvalues.
+     */
+    private static double[][] jacobi(double[][] a) {
+        int n = a.length;
+        double[][] v = CmaEvolutionStrategy.identity(n);
+        for (int sweep = 0; sweep < Constants.CMA_JACOBI_SWEEPS; sweep++) {
+            double offDiagonal = 0;
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    offDiagonal += a[p][q] * a[p][q];
+                }
+            }
+            if (offDiagonal < 1e-30) {
+                break;
+            }
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    if (a[p][q] == 0) {
+                        continue;
+                    }
+                    double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0) {
+                        t = 1;
+                    }
+                    double c = 1 / Math.sqrt(t * t + 1);
+                    double s = t * c;
+                    CmaEvolutionStrategy.rotate(a, v, p, q, c, s);
+                }
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Applies the Jacobi rotation in the p, q plane with the given cosine and sine
+     * to both sides of the matrix, zeroing a[p][q], and to the eigenvectors.
+     */
+    private static void rotate(double[][] a, double[][] v, int p, int q, double c, double s) {
+        int n = a.length;
+        for (int k = 0; k < n; k++) {
+            double akp = a[k][p];
+            double akq = a[k][q];
+            a[k][p] = c * akp - s * akq;
+            a[k][q] = s * akp + c * akq;
+        }
+        for (int k = 0; k < n; k++) {
+            double apk = a[p][k];
+            double aqk = a[q][k];
+            a[p][k] = c * apk - s * aqk;
+            a[q][k] = s * apk + c * aqk;
+        }
+        for (int k = 0; k < n; k++) {
+            double vkp = v[k][p];
+            double vkq = v[k][q];
+            v[k][p] = c * vkp - s * vkq;
+            v[k][q] = s * vkp + c * vkq;
+        }
+    }
+
+    /**
+     * Returns the n by n identity matrix.
+     */
+    private static double[][] identity(int n) {
+        double[][] identity = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            identity[i][i] = 1;
+        }
+        return identity;
+    }
+
+    /**
+     * Returns the product of a square matrix and a vector.
+     */
+    private static double[] multiply(double[][] matrix, double[] vector) {
+        double[] product = new double[vector.length];
+        for (int i = 0; i < matrix.length; i++) {
+            double sum = 0;
+            for (int j = 0; j < vector.length; j++) {
+                sum += matrix[i][j] * vector[j];
+            }
+            product[i] = sum;
+        }
+        return product;
+    }
+
+    /**
+     * Returns the name of the optimizer.
+     */
+    @Override
+    public String getName() {
+        return "cma";
+    }
+
+    /**
+     * Returns the current step size.
+     */
+    public double getSigma() {
+        return _sigma;
+    }
+
+    /**
+     * Returns the current mean genome.
+     */
+    public double[] getMean() {
+        return _mean;
+    }
+}
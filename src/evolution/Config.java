@@ -0,0 +1,244 @@
+package evolution;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Typed settings for the tuning knobs that used to only be constants, so they can
+ * be changed without recompiling. A config starts from the defaults in the
+ * Constants class and can be read from a properties file and then overridden by
+ * key=value pairs from the command line. Every value is parsed and checked once
+ * when the config is created and kept in a final field, so the classes that use a
+ * config copy plain values out of it instead of looking them up while they run.
+ * Configs never change; with returns a new config with some values overridden.
+ */
+public class Config {
+    public static final String POPULATION_SIZE = "population-size";
+    public static final String HIDDEN_NODES = "hidden-nodes";
+    public static final String MUTATION_RATE = "mutation-rate";
+    public static final String MUTATION_CHANGE = "mutation-change";
+    public static final String SELECTION_RATE = "selection-rate";
+    public static final String MAX_FITNESS = "max-fitness";
+    public static final String DURATION = "duration";
+    private static final List<String> KEYS = Collections.unmodifiableList(Arrays.asList(POPULATION_SIZE, HIDDEN_NODES,
+            MUTATION_RATE, MUTATION_CHANGE, SELECTION_RATE, MAX_FITNESS, DURATION));
+
+    private final int _populationSize;
+    private final int _hiddenNodes;
+    private final double _mutationRate;
+    private final double _mutationChange;
+    private final double _selectionRate;
+    private final int _maxFitness;
+    private final double _duration;
+
+    /**
+     * Default constructor that uses the values of the constants.
+     */
+    public Config() {
+        this(new Properties());
+    }
+
+    /**
+     * Constructor takes properties whose keys are the names of the settings. Settings
+     * that are missing keep the values of the constants. Throws an
+     * IllegalArgumentException if a key is unknown or a value is out of range.
+     */
+    public Config(Properties properties) {
+        for (String key: properties.stringPropertyNames()) {
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown setting " + key + ", known settings are " + KEYS);
+            }
+        }
+        _populationSize = Config.parseInt(properties, POPULATION_SIZE, Constants.POPULATION_SIZE, 1);
+        _hiddenNodes = Config.parseInt(properties, HIDDEN_NODES, Constants.HIDDEN_NODES, 1);
+        _mutationRate = Config.parseDouble(properties, MUTATION_RATE, Constants.MUTATION_RATE, 0, 1);
+        _mutationChange = Config.parseDouble(properties, MUTATION_CHANGE, Constants.MUTATION_CHANGE, 0,
+                Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN);
+        _selectionRate = Config.parseDouble(properties, SELECTION_RATE, Constants.SELECTION_RATE, 0, 1);
+        _maxFitness = Config.parseInt(properties, MAX_FITNESS, Constants.MAX_FITNESS, 1);
+        _duration = Config.parseDouble(properties, DURATION, Constants.DURATION, 0.001, 1);
+    }
+
+    /**
+     * Returns the config read from the given properties file, or the defaults if
+     * the path is null, with the given overrides applied on top.
+     */
+    public static Config load(Path path, Properties overrides) throws IOException {
+        Properties properties = new Properties();
+        if (path != null) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        properties.putAll(overrides);
+        return new Config(properties);
+    }
+
+    /**
+     * Returns a new config with the same values as this one except for the given
+     * overrides.
+     */
+    public Config with(Properties overrides) {
+        Properties properties = this.toProperties();
+        properties.putAll(overrides);
+        return new Config(properties);
+    }
+
+    /**
+     * Same as the previous method but overrides a single setting.
+     */
+    public Config with(String key, String value) {
+        Properties overrides = new Properties();
+        overrides.setProperty(key, value);
+        return this.with(overrides);
+    }
+
+    /**
+     * Parses a key=value pair such as population-size=100 into the given properties.
+     */
+    public static void parseOverride(String pair, Properties overrides) {
+        int equals = pair.indexOf('=');
+        if (equals <= 0) {
+            throw new IllegalArgumentException("Settings must be given as key=value, not " + pair);
+        }
+        overrides.setProperty(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+    }
+
+    /**
+     * Returns whether the setting with the given key takes an integer value.
+     */
+    public static boolean isInteger(String key) {
+        return key.equals(POPULATION_SIZE) || key.equals(HIDDEN_NODES) || key.equals(MAX_FITNESS);
+    }
+
+    /**
+     * Returns the value of an integer setting, or the default if it is missing.
+     */
+    private static int parseInt(Properties properties, String key, int defaultValue, int min) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be an integer, not " + value);
+        }
+        if (parsed < min) {
+            throw new IllegalArgumentException(key + " must be at least " + min);
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the value of a decimal setting, or the default if it is missing.
+     */
+    private static double parseDouble(Properties properties, String key, double defaultValue, double min, double max) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        double parsed;
+        try {
+            parsed = Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number, not " + value);
+        }
+        if (!(parsed >= min && parsed <= max)) {
+            throw new IllegalArgumentException(key + " must be between " + min + " and " + max);
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the names of all of the settings.
+     */
+    public static List<String> getKeys() {
+        return KEYS;
+    }
+
+    /**
+     * Returns every setting as properties that create an equal config.
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(POPULATION_SIZE, Integer.toString(_populationSize));
+        properties.setProperty(HIDDEN_NODES, Integer.toString(_hiddenNodes));
+        properties.setProperty(MUTATION_RATE, Double.toString(_mutationRate));
+        properties.setProperty(MUTATION_CHANGE, Double.toString(_mutationChange));
+        properties.setProperty(SELECTION_RATE, Double.toString(_selectionRate));
+        properties.setProperty(MAX_FITNESS, Integer.toString(_maxFitness));
+        properties.setProperty(DURATION, Double.toString(_duration));
+        return properties;
+    }
+
+    /**
+     * Returns the number of birds in each generation.
+     */
+    public int getPopulationSize() {
+        return _populationSize;
+    }
+
+    /**
+     * Returns the number of nodes in the hidden layer of the neural networks.
+     */
+    public int getHiddenNodes() {
+        return _hiddenNodes;
+    }
+
+    /**
+     * Returns the chance of each weight being mutated.
+     */
+    public double getMutationRate() {
+        return _mutationRate;
+    }
+
+    /**
+     * Returns the maximum amount a mutated weight can change by.
+     */
+    public double getMutationChange() {
+        return _mutationChange;
+    }
+
+    /**
+     * Returns the fraction of each generation selected as elites.
+     */
+    public double getSelectionRate() {
+        return _selectionRate;
+    }
+
+    /**
+     * Returns the fitness at which a bird is stopped and the game is solved.
+     */
+    public int getMaxFitness() {
+        return _maxFitness;
+    }
+
+    /**
+     * Returns the length of a tick in seconds.
+     */
+    public double getDuration() {
+        return _duration;
+    }
+
+    /**
+     * Returns the settings in the order of getKeys, as key=value pairs.
+     */
+    @Override
+    public String toString() {
+        return POPULATION_SIZE + "=" + _populationSize + " " + HIDDEN_NODES + "=" + _hiddenNodes + " "
+                + MUTATION_RATE + "=" + _mutationRate + " " + MUTATION_CHANGE + "=" + _mutationChange + " "
+                + SELECTION_RATE + "=" + _selectionRate + " " + MAX_FITNESS + "=" + _maxFitness + " "
+                + DURATION + "=" + _duration;
+    }
+}
@@ -15,6 +15,8 @@ public class Constants {
     public static final int REBOUND_VELOCITY = -400;
     public static final double DURATION = 0.016;
     public static final double SCROLL_SPEED = -3;
+    // longest time between two frames the game loop catches up on, in seconds
+    public static final double MAX_FRAME_TIME = 0.25;
 
     public static final double BIRD_X = 100;
     public static final double BIRD_START_Y = 300;
@@ -47,6 +49,55 @@ public class Constants {
     public static final double MUTATION_RATE = 0.03;
     // maximum value by which mutated weight can change
     public static final double MUTATION_CHANGE = 0.03;
+    // fraction of mutated birds that should beat their parent under the 1/5th success rule
+    public static final double MUTATION_TARGET_SUCCESS = 0.2;
+    // factor the mutations are made stronger or weaker by each generation under the 1/5th success rule
+    public static final double MUTATION_ADAPT_FACTOR = 1.22;
+    // smallest the mutation rate and change can be made under the 1/5th success rule
+    public static final double MIN_MUTATION_RATE = 0.01;
+    public static final double MIN_MUTATION_CHANGE = 0.001;
+    // generations without a new best fitness before the mutations are boosted
+    public static final int STAGNATION_GENERATIONS = 10;
+    // factor the mutations are boosted by while the population is stagnating
+    public static final double STAGNATION_BOOST = 4;
+    // standard deviation of the noise added to the mean genome by the evolution strategy
+    public static final double ES_SIGMA = 0.3;
+    // how far the evolution strategy moves its mean genome along the estimated gradient
+    public static final double ES_LEARNING_RATE = 1.0;
+    // generations without a new best fitness before the evolution strategy restarts from a new random mean
+    public static final int ES_RESTART_GENERATIONS = 20;
+    // initial step size of the covariance matrix adaptation evolution strategy
+    public static final double CMA_SIGMA = 0.3;
+    // maximum number of sweeps of Jacobi rotations used to find the eigenvectors of the covariance matrix
+    public static final int CMA_JACOBI_SWEEPS = 50;
+    // size of the grid cells genomes are bucketed into to find near duplicates
+    public static final double DIVERSITY_CELL = MUTATION_CHANGE;
+    // number of random pairs of genomes whose distance is sampled each generation
+    public static final int DIVERSITY_SAMPLES = 1000;
+    // initial distance within which genomes belong to the same species, as a fraction of the largest possible distance
+    public static final double SPECIES_THRESHOLD = 0.3;
+    // factor the species distance threshold is raised or lowered by each generation to reach the target number of species
+    public static final double SPECIES_THRESHOLD_STEP = 0.1;
+    // gap, largest distance between neighbouring gaps and space between pipes a curriculum starts from
+    public static final double CURRICULUM_START_GAP = 280;
+    public static final double CURRICULUM_START_GAP_RANGE = 100;
+    public static final double CURRICULUM_START_X_SPACE = 300;
+    // fraction of the max fitness the best bird must reach for a curriculum to move on to harder courses
+    public static final double CURRICULUM_PROMOTION = 0.5;
+    // standard errors of the courses flown so far used for the bounds when racing, unless another number is given
+    public static final double RACING_ERRORS = 2;
+    // number of lookups in a decision table between checks of the table against the network
+    public static final int DECISION_AUDIT_INTERVAL = 64;
+    // number of cells each input is split into by decision table agents
+    public static final int DECISION_TABLE_RESOLUTION = 32;
+    // largest number of cells each input of a decision table can be split into, so the cells of a table
+    // always fit in an int and a table takes at most 4 MB
+    public static final int MAX_DECISION_TABLE_RESOLUTION = 256;
+    // largest fraction of the maximum heap the decision tables of a whole population may take, since every
+    // bird's table is kept until the next generation and the rest of the trainer needs the remainder
+    public static final double MAX_DECISION_TABLE_HEAP_FRACTION = 0.5;
+    // how far above the bottom of the gap the heuristic agent jumps
+    public static final double HEURISTIC_MARGIN = 20;
     // minimum fitness elite bird must reach to be selected to pass on weights
     public static final int MIN_FITNESS = (int) ((SCENE_WIDTH - BIRD_X - BIRD_R) / -SCROLL_SPEED);
     // fitness at which population resets and next generation begins
@@ -0,0 +1,144 @@
+package evolution;
+
+import java.util.Random;
+
+/**
+ * Headless version of the pipes that the game class generates. Generates the gaps
+ * of all of the pipes up front from a seed using the same rules as the Pipe class
+ * so that every bird (and every thread evaluating birds) flies the exact same course.
+ * Since every pipe scrolls at the same speed, pipe x values are not stored but
+ * calculated from the index of the pipe and the number of ticks that have passed.
+ * The size of the gaps and the spacing of the pipes are given by the course's
+ * Difficulty, which is the game's own unless another one is given.
+ */
+public class Course {
+    // horizontal distance between the left edges of two neighbouring pipes at the standard difficulty
+    public static final double PIPE_SPACING = Constants.PIPE_WIDTH + Constants.PIPE_X_SPACE;
+
+    private long _seed;
+    private Difficulty _difficulty;
+    private double _spacing;
+    private double[] _gapYs;
+    private int[] _fixedGapYs;
+
+    /**
+     * Constructor takes the seed that the gaps are generated from and the number
+     * of ticks the course must last for, which decides how many pipes are needed.
+     */
+    public Course(long seed, int maxTicks) {
+        this(seed, maxTicks, Difficulty.STANDARD);
+    }
+
+    /**
+     * Same as the previous constructor but also takes the difficulty of the pipes.
+     */
+    public Course(long seed, int maxTicks, Difficulty difficulty) {
+        _seed = seed;
+        _difficulty = difficulty;
+        _spacing = Constants.PIPE_WIDTH + difficulty.getXSpace();
+
+        int numPipes = (int) (-Constants.SCROLL_SPEED * maxTicks / _spacing) + 3;
+        _gapYs = new double[numPipes];
+        _fixedGapYs = new int[numPipes];
+
+        Random random = new Random(seed);
+        double prevY = random.nextDouble() * Constants.GAME_HEIGHT;
+        for (int i = 0; i < numPipes; i++) {
+            _gapYs[i] = Course.nextGapY(prevY, random.nextDouble(), difficulty.getGap(), difficulty.getGapRange());
+            _fixedGapYs[i] = FixedPoint.toFixed(_gapYs[i]);
+            prevY = _gapYs[i];
+        }
+    }
+
+    /**
+     * Generates the y value of the top of a new pipe gap within a specific range
+     * from the previous one. Takes the previous gap y value and a random number
+     * between 0 and 1. Shared with the Pipe class so both follow the same rules.
+     */
+    public static double nextGapY(double prevY, double random) {
+        return Course.nextGapY(prevY, random, Constants.PIPE_GAP, Constants.NEXT_GAP_RANGE);
+    }
+
+    /**
+     * Same as the previous method but takes the height of the gaps and the largest
+     * distance between two neighbouring gaps instead of using the game's.
+     */
+    public static double nextGapY(double prevY, double random, double gap, double gapRange) {
+        // prevents bug where prevY value sometimes is larger than what the max value should be
+        if (prevY > Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - gap) {
+            prevY = Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - gap;
+        }
+        double lowBound = Math.max(Constants.PIPE_GAP_BUFFER, prevY - gapRange);
+        double highBound = Math.min(prevY + gapRange, Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - gap);
+        return random * (highBound - lowBound) + lowBound;
+    }
+
+    /**
+     * Returns the seed the course was generated from.
+     */
+    public long getSeed() {
+        return _seed;
+    }
+
+    /**
+     * Returns the difficulty of the course.
+     */
+    public Difficulty getDifficulty() {
+        return _difficulty;
+    }
+
+    /**
+     * Returns the height of the gaps.
+     */
+    public double getGap() {
+        return _difficulty.getGap();
+    }
+
+    /**
+     * Returns the height of the gaps in the micropixels of the fixed point physics.
+     */
+    public int getGapFixed() {
+        return FixedPoint.toFixed(_difficulty.getGap());
+    }
+
+    /**
+     * Returns the number of pipes in the course.
+     */
+    public int getNumPipes() {
+        return _gapYs.length;
+    }
+
+    /**
+     * Returns the x value of the pipe with the given index after the given number
+     * of ticks. The first pipe starts at the right edge of the scene.
+     */
+    public double getPipeX(int index, int tick) {
+        return Constants.SCENE_WIDTH + index * _spacing + tick * Constants.SCROLL_SPEED;
+    }
+
+    /**
+     * Returns the y value of the top of the gap of the pipe with the given index.
+     */
+    public double getGapY(int index) {
+        return _gapYs[index];
+    }
+
+    /**
+     * Returns the x value of the pipe with the given index after the given number
+     * of ticks in the micropixels of the fixed point physics. The pipe's x value
+     * is small but the distance it has scrolled does not fit in an int, so it is
+     * calculated with longs.
+     */
+    public long getPipeXFixed(int index, int tick) {
+        return FixedPoint.toFixed(Constants.SCENE_WIDTH) + index * (long) FixedPoint.toFixed(_spacing)
+                + tick * (long) FixedPoint.toFixed(Constants.SCROLL_SPEED);
+    }
+
+    /**
+     * Returns the y value of the top of the gap of the pipe with the given index
+     * in the micropixels of the fixed point physics.
+     */
+    public int getGapYFixed(int index) {
+        return _fixedGapYs[index];
+    }
+}
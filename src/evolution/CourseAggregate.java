@@ -0,0 +1,153 @@
+package evolution;
+
+import java.util.Arrays;
+
+/**
+ * How the fitness of a bird that flies several courses is combined into a single
+ * fitness: the mean, the minimum or a percentile of the ticks it survived on each
+ * course. Also gives the bounds on the combined fitness of a bird that has only
+ * flown some of the courses so far, which is what lets a HeadlessPopulation stop
+ * running birds that can no longer become elites. Exact bounds assume the worst
+ * and the best case for the remaining courses: 0 ticks or the tick budget.
+ * Statistical bounds instead assume the remaining courses average within a given
+ * number of standard errors of the courses flown so far, which is much tighter.
+ * The scores of a bird are read from a given offset of an array, so the scores of
+ * every bird can be kept in one flat array. Percentiles sort a copy of the scores
+ * in a buffer that is kept between calls, so an aggregate should only be used by
+ * one thread at a time.
+ */
+public class CourseAggregate {
+    private Kind _kind;
+    private int _percentile;
+    private int[] _sorted = new int[0];
+
+    /**
+     * Constructor takes the kind of aggregate and, for PERCENTILE, the percentile
+     * between 1 and 100. Percentiles are taken with the nearest rank method.
+     */
+    public CourseAggregate(Kind kind, int percentile) {
+        _kind = kind;
+        _percentile = percentile;
+    }
+
+    /**
+     * Parses an aggregate from mean, min or p followed by a percentile such as p25.
+     */
+    public static CourseAggregate parse(String value) {
+        if (value.equals("mean")) {
+            return new CourseAggregate(Kind.MEAN, 0);
+        }
+        if (value.equals("min")) {
+            return new CourseAggregate(Kind.MIN, 0);
+        }
+        if (value.startsWith("p")) {
+            int percentile = Integer.parseInt(value.substring(1));
+            if (percentile >= 1 && percentile <= 100) {
+                return new CourseAggregate(Kind.PERCENTILE, percentile);
+            }
+        }
+        throw new IllegalArgumentException("The aggregate must be mean, min or a percentile from p1 to p100");
+    }
+
+    /**
+     * Returns the combined fitness of the count scores starting at the offset.
+     */
+    public int getValue(int[] scores, int offset, int count) {
+        return this.getValue(scores, offset, count, count, 0);
+    }
+
+    /**
+     * Returns the lowest combined fitness a bird with the count of its scores
+     * starting at the offset known is expected to end up with once all of the
+     * courses have been flown. Takes the number of standard errors the remaining
+     * courses can be below the mean of the known ones, or infinity for the exact bound.
+     */
+    public int getLowerBound(int[] scores, int offset, int count, int numCourses, int maxTicks, double confidence) {
+        return this.getValue(scores, offset, count, numCourses,
+                this.getFill(scores, offset, count, numCourses, maxTicks, -confidence));
+    }
+
+    /**
+     * Returns the highest combined fitness a bird with the count of its scores
+     * starting at the offset known is expected to end up with once all of the
+     * courses have been flown. Takes the number of standard errors the remaining
+     * courses can be above the mean of the known ones, or infinity for the exact bound.
+     */
+    public int getUpperBound(int[] scores, int offset, int count, int numCourses, int maxTicks, double confidence) {
+        return this.getValue(scores, offset, count, numCourses,
+                this.getFill(scores, offset, count, numCourses, maxTicks, confidence));
+    }
+
+    /**
+     * Returns the score assumed for each of the remaining courses: the mean of the
+     * known scores plus the given number of standard errors of the mean of the
+     * remaining courses, kept within 0 and the tick budget. With fewer than two
+     * known scores or an infinite number of standard errors it is 0 or the budget.
+     */
+    private int getFill(int[] scores, int offset, int count, int numCourses, int maxTicks, double errors) {
+        if (count < 2 || Double.isInfinite(errors) || count == numCourses) {
+            return errors < 0 ? 0 : maxTicks;
+        }
+        double mean = 0;
+        for (int i = offset; i < offset + count; i++) {
+            mean += scores[i];
+        }
+        mean /= count;
+        double variance = 0;
+        for (int i = offset; i < offset + count; i++) {
+            variance += (scores[i] - mean) * (scores[i] - mean);
+        }
+        variance /= count - 1;
+        double fill = mean + errors * Math.sqrt(variance / (numCourses - count));
+        return (int) Math.max(0, Math.min(maxTicks, errors < 0 ? Math.floor(fill) : Math.ceil(fill)));
+    }
+
+    /**
+     * Helper method that returns the combined fitness of the count scores starting
+     * at the offset followed by enough copies of the fill value to make numCourses scores.
+     */
+    private int getValue(int[] scores, int offset, int count, int numCourses, int fill) {
+        int missing = numCourses - count;
+        switch (_kind) {
+            case MIN: {
+                int min = missing > 0 ? fill : Integer.MAX_VALUE;
+                for (int i = offset; i < offset + count; i++) {
+                    min = Math.min(min, scores[i]);
+                }
+                return min;
+            }
+            case PERCENTILE: {
+                if (_sorted.length < numCourses) {
+                    _sorted = new int[numCourses];
+                }
+                System.arraycopy(scores, offset, _sorted, 0, count);
+                Arrays.fill(_sorted, count, numCourses, fill);
+                Arrays.sort(_sorted, 0, numCourses);
+                int rank = (int) Math.ceil(_percentile / 100.0 * numCourses);
+                return _sorted[Math.max(0, rank - 1)];
+            }
+            default: {
+                long sum = (long) missing * fill;
+                for (int i = offset; i < offset + count; i++) {
+                    sum += scores[i];
+                }
+                return (int) (sum / numCourses);
+            }
+        }
+    }
+
+    /**
+     * Returns a short name of the aggregate as it is parsed.
+     */
+    @Override
+    public String toString() {
+        return _kind == Kind.PERCENTILE ? "p" + _percentile : _kind.name().toLowerCase();
+    }
+
+    /**
+     * The kinds of aggregate.
+     */
+    public enum Kind {
+        MEAN, MIN, PERCENTILE
+    }
+}
@@ -0,0 +1,78 @@
+package evolution;
+
+/**
+ * Schedules the difficulty of the courses a population is trained on. Training
+ * starts on easy courses, with wide gaps close to each other, and every time the
+ * best bird of a generation reaches a fraction of the max fitness the courses move
+ * one level closer to the target difficulty, so generations of birds that cannot
+ * fly yet die fast on courses they can learn from and the hard courses are only
+ * flown once birds are ready for them. Records the generation each level was reached.
+ */
+public class Curriculum {
+    private Difficulty _start, _target;
+    private int _numLevels, _level;
+    private int[] _reachedAt;
+
+    /**
+     * Constructor takes the difficulty to start from, the difficulty to end at and
+     * the number of levels it takes to get from one to the other.
+     */
+    public Curriculum(Difficulty start, Difficulty target, int numLevels) {
+        _start = start;
+        _target = target;
+        _numLevels = numLevels;
+        _reachedAt = new int[numLevels + 1];
+        _reachedAt[0] = 1;
+    }
+
+    /**
+     * Returns the difficulty of the current level.
+     */
+    public Difficulty getDifficulty() {
+        return Difficulty.interpolate(_start, _target, (double) _level / _numLevels);
+    }
+
+    /**
+     * Called at the end of each generation with its best fitness and the max
+     * fitness. Moves on to the next level if the best bird reached enough of the
+     * max fitness, so the next generation flies harder courses. Returns whether
+     * the level changed.
+     */
+    public boolean update(int generation, int bestFitness, int maxFitness) {
+        if (_level < _numLevels && bestFitness >= Constants.CURRICULUM_PROMOTION * maxFitness) {
+            _level++;
+            _reachedAt[_level] = generation + 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the current level, 0 for the start difficulty.
+     */
+    public int getLevel() {
+        return _level;
+    }
+
+    /**
+     * Returns the number of the last level, the target difficulty.
+     */
+    public int getNumLevels() {
+        return _numLevels;
+    }
+
+    /**
+     * Returns whether the courses are at the target difficulty.
+     */
+    public boolean isFinal() {
+        return _level == _numLevels;
+    }
+
+    /**
+     * Returns the first generation that flew the given level, or 0 if it has not
+     * been reached yet.
+     */
+    public int getReachedAt(int level) {
+        return _reachedAt[level];
+    }
+}
@@ -0,0 +1,214 @@
+package evolution;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Memoized jump decisions of a single neural network. The network only has three
+ * inputs (the bird's y value, the y value of the gap and the x value of the nearest
+ * pipe) so each input's range is split into the given number of cells, and the
+ * decision at the center of a cell is used for every input that falls in it. The
+ * decisions are stored two bits per cell (whether the cell has been filled in and
+ * whether the bird jumps) and are only worked out the first time a cell is used,
+ * so a long game mostly costs a table lookup per tick instead of a forward
+ * propagation. Since it is an approximation, every few lookups are also checked
+ * against the network itself to measure how often the two agree.
+ * The input ranges are those of the standard difficulty: on courses with a
+ * smaller gap the top of the gap goes past the last cell and is clamped, so
+ * tables should only be used on standard courses.
+ * A table is not thread safe, it should only be used by one game at a time.
+ */
+public class DecisionTable implements Agent {
+    // ranges of the three inputs on the standard difficulty, the same ones the network normalizes them with
+    private static final double MIN_BIRD_Y = Constants.BIRD_R;
+    private static final double MAX_BIRD_Y = Constants.GAME_HEIGHT;
+    private static final double MIN_GAP_Y = Constants.PIPE_GAP_BUFFER;
+    private static final double MAX_GAP_Y = Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - Constants.PIPE_GAP;
+    private static final double MIN_PIPE_X = Constants.BIRD_X - Constants.PIPE_WIDTH - Constants.BIRD_R;
+    private static final double MAX_PIPE_X = Constants.SCENE_WIDTH;
+
+    private NeuralNetwork _nn;
+    private int _resolution;
+    private boolean _strict;
+    private long[] _filled, _jumps;
+    private long _lookups, _hits, _audits, _agreements;
+
+    /**
+     * Constructor takes the network whose decisions are memoized, the number of
+     * cells each input's range is split into, and whether the network is run with
+     * forwardPropStrict (for the fixed point physics) or forwardProp. Throws an
+     * IllegalArgumentException if the resolution is not between 1 and
+     * Constants.MAX_DECISION_TABLE_RESOLUTION.
+     */
+    public DecisionTable(NeuralNetwork nn, int resolution, boolean strict) {
+        if (resolution < 1 || resolution > Constants.MAX_DECISION_TABLE_RESOLUTION) {
+            throw new IllegalArgumentException("The resolution of a decision table must be between 1 and "
+                    + Constants.MAX_DECISION_TABLE_RESOLUTION);
+        }
+        _nn = nn;
+        _resolution = resolution;
+        _strict = strict;
+
+        int numCells = resolution * resolution * resolution;
+        _filled = new long[(numCells + 63) / 64];
+        _jumps = new long[_filled.length];
+    }
+
+    /**
+     * Returns the number of bytes of heap the two bitsets of a table with the
+     * given resolution take.
+     */
+    public static long getBytes(int resolution) {
+        long numCells = (long) resolution * resolution * resolution;
+        return 2 * 8 * ((numCells + 63) / 64);
+    }
+
+    /**
+     * Does nothing since the filled in cells are kept from game to game.
+     */
+    @Override
+    public void reset() {
+    }
+
+    /**
+     * Returns whether the bird jumps with the given inputs, looking the decision
+     * up in the table and filling in the cell from the network if it is empty.
+     */
+    @Override
+    public boolean jump(double birdY, double pipeY, double pipeX) {
+        int cell = this.getCell(birdY, MIN_BIRD_Y, MAX_BIRD_Y);
+        cell = cell * _resolution + this.getCell(pipeY, MIN_GAP_Y, MAX_GAP_Y);
+        cell = cell * _resolution + this.getCell(pipeX, MIN_PIPE_X, MAX_PIPE_X);
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+
+        _lookups++;
+        boolean jumped;
+        if ((_filled[word] & bit) != 0) {
+            _hits++;
+            jumped = (_jumps[word] & bit) != 0;
+        }
+        else {
+            jumped = this.jumpAtCenter(cell);
+            _filled[word] |= bit;
+            if (jumped) {
+                _jumps[word] |= bit;
+            }
+        }
+
+        if (_lookups % Constants.DECISION_AUDIT_INTERVAL == 0) {
+            _audits++;
+            if (jumped == this.exactJump(birdY, pipeY, pipeX)) {
+                _agreements++;
+            }
+        }
+        return jumped;
+    }
+
+    /**
+     * Returns the index of the cell the value falls in within the given range.
+     * Values outside of the range use the first or last cell.
+     */
+    private int getCell(double value, double min, double max) {
+        int cell = (int) ((value - min) / (max - min) * _resolution);
+        return Math.max(0, Math.min(_resolution - 1, cell));
+    }
+
+    /**
+     * Returns the network's decision at the center of the cell with the given index.
+     */
+    private boolean jumpAtCenter(int cell) {
+        double pipeX = this.getCenter(cell % _resolution, MIN_PIPE_X, MAX_PIPE_X);
+        cell /= _resolution;
+        double pipeY = this.getCenter(cell % _resolution, MIN_GAP_Y, MAX_GAP_Y);
+        double birdY = this.getCenter(cell / _resolution, MIN_BIRD_Y, MAX_BIRD_Y);
+        return this.exactJump(birdY, pipeY, pipeX);
+    }
+
+    /**
+     * Returns the value at the center of the cell with the given index within the given range.
+     */
+    private double getCenter(int cell, double min, double max) {
+        return min + (cell + 0.5) * (max - min) / _resolution;
+    }
+
+    /**
+     * Returns the decision of the network itself for the given inputs.
+     */
+    private boolean exactJump(double birdY, double pipeY, double pipeX) {
+        double output = _strict ? _nn.forwardPropStrict(birdY, pipeY, pipeX) : _nn.forwardProp(birdY, pipeY, pipeX);
+        return output >= Constants.JUMP_FREQUENCY;
+    }
+
+    /**
+     * Returns a description of the table.
+     */
+    @Override
+    public String getDescription() {
+        return "Decision table (" + _resolution + " cells per input)";
+    }
+
+    /**
+     * Returns the network whose decisions are memoized.
+     */
+    public NeuralNetwork getNetwork() {
+        return _nn;
+    }
+
+    /**
+     * Returns the number of lookups made in the table.
+     */
+    public long getLookups() {
+        return _lookups;
+    }
+
+    /**
+     * Returns the number of lookups that found their cell already filled in.
+     */
+    public long getHits() {
+        return _hits;
+    }
+
+    /**
+     * Returns the number of lookups that were checked against the network.
+     */
+    public long getAudits() {
+        return _audits;
+    }
+
+    /**
+     * Returns the number of checked lookups where the table and the network agreed.
+     */
+    public long getAgreements() {
+        return _agreements;
+    }
+
+    /**
+     * Creates decision table agents from the first genome of a genome file.
+     */
+    public static class Provider implements AgentProvider {
+        @Override
+        public String getName() {
+            return "table";
+        }
+
+        @Override
+        public String getUsage() {
+            return "table:genome-file";
+        }
+
+        @Override
+        public Agent create(String argument, Simulation.Physics physics) throws IOException {
+            if (argument == null) {
+                throw new IllegalArgumentException("The table agent needs a genome file");
+            }
+            List<NeuralNetwork> genomes = GenomeFile.read(Paths.get(argument));
+            if (genomes.isEmpty()) {
+                throw new IOException(argument + " has no genomes");
+            }
+            return new DecisionTable(genomes.get(0), Constants.DECISION_TABLE_RESOLUTION,
+                    physics == Simulation.Physics.FIXED);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package evolution;
+
+import java.util.Arrays;
+
+/**
+ * How hard the pipes of a Course are: the height of the gaps, how far a gap can
+ * be above or below the previous one, and the horizontal space between two pipes.
+ * The standard difficulty is the one the game uses. Difficulties in between two
+ * others are interpolated for a curriculum.
+ */
+public class Difficulty {
+    public static final Difficulty STANDARD = new Difficulty(Constants.PIPE_GAP, Constants.NEXT_GAP_RANGE,
+            Constants.PIPE_X_SPACE);
+    // where a curriculum starts unless it is given another difficulty
+    public static final Difficulty EASY = new Difficulty(Constants.CURRICULUM_START_GAP,
+            Constants.CURRICULUM_START_GAP_RANGE, Constants.CURRICULUM_START_X_SPACE);
+
+    private double _gap, _gapRange, _xSpace;
+
+    /**
+     * Constructor takes the height of the gaps, the largest distance between the
+     * tops of two neighbouring gaps and the space between two neighbouring pipes.
+     * Throws an IllegalArgumentException if the bird could not fit or the gaps
+     * could not fit between the buffers at the top and bottom of the game.
+     */
+    public Difficulty(double gap, double gapRange, double xSpace) {
+        if (!(gap > 2 * Constants.BIRD_R && gap < Constants.GAME_HEIGHT - 2 * Constants.PIPE_GAP_BUFFER)) {
+            throw new IllegalArgumentException("The gap must be between " + 2 * Constants.BIRD_R + " and "
+                    + (Constants.GAME_HEIGHT - 2 * Constants.PIPE_GAP_BUFFER));
+        }
+        if (!(gapRange >= 0)) {
+            throw new IllegalArgumentException("The gap range must not be negative");
+        }
+        if (!(xSpace > 0)) {
+            throw new IllegalArgumentException("The space between pipes must be positive");
+        }
+        _gap = gap;
+        _gapRange = gapRange;
+        _xSpace = xSpace;
+    }
+
+    /**
+     * Parses a difficulty written as gap:range:space, the same format as toString.
+     */
+    public static Difficulty parse(String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("A difficulty must be written as gap:range:space, not " + value);
+        }
+        return new Difficulty(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+    }
+
+    /**
+     * Returns the difficulty the given fraction of the way from the first
+     * difficulty to the second.
+     */
+    public static Difficulty interpolate(Difficulty from, Difficulty to, double fraction) {
+        if (fraction >= 1) {
+            return to;
+        }
+        return new Difficulty(from._gap + (to._gap - from._gap) * fraction,
+                from._gapRange + (to._gapRange - from._gapRange) * fraction,
+                from._xSpace + (to._xSpace - from._xSpace) * fraction);
+    }
+
+    /**
+     * Returns the height of the gaps.
+     */
+    public double getGap() {
+        return _gap;
+    }
+
+    /**
+     * Returns the largest distance between the tops of two neighbouring gaps.
+     */
+    public double getGapRange() {
+        return _gapRange;
+    }
+
+    /**
+     * Returns the horizontal space between two neighbouring pipes.
+     */
+    public double getXSpace() {
+        return _xSpace;
+    }
+
+    /**
+     * Returns whether the other object is a difficulty with the same gap, gap
+     * range and space between pipes.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Difficulty)) {
+            return false;
+        }
+        Difficulty difficulty = (Difficulty) other;
+        return _gap == difficulty._gap && _gapRange == difficulty._gapRange && _xSpace == difficulty._xSpace;
+    }
+
+    /**
+     * Returns a hash code that is the same for equal difficulties.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new double[] {_gap, _gapRange, _xSpace});
+    }
+
+    /**
+     * Returns the difficulty as gap:range:space.
+     */
+    @Override
+    public String toString() {
+        return Difficulty.format(_gap) + ":" + Difficulty.format(_gapRange) + ":" + Difficulty.format(_xSpace);
+    }
+
+    /**
+     * Formats a length without a fractional part if it is whole and with one
+     * decimal otherwise.
+     */
+    private static String format(double length) {
+        return length == Math.rint(length) ? String.valueOf((long) length) : String.format("%.1f", length);
+    }
+}
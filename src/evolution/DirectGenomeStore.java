@@ -0,0 +1,248 @@
+package evolution;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+/**
+ * Genome store that keeps the weights of every bird off the heap, in two direct
+ * buffers that each hold one whole generation as a single contiguous block of
+ * packed weights. The buffers are allocated once, so creating a generation is a
+ * bulk copy and mutation from one buffer into the other and the garbage collector
+ * never sees the weights at all, which matters for populations of hundreds of
+ * thousands of birds. The birds are flown by running the forward propagation
+ * straight from the buffer, with exactly the same arithmetic as NeuralNetwork so
+ * the results do not change.
+ */
+public class DirectGenomeStore implements GenomeStore {
+    private DoubleBuffer _current, _next;
+    private int _size, _numWeights, _hiddenNodes;
+    // agent of each genome, created the first time it is asked for and kept, for normal and strict math
+    private StoredAgent[] _agents, _strictAgents;
+
+    /**
+     * Constructor takes the config, which gives the number of birds and the size
+     * of their networks. Throws an IllegalArgumentException if a generation does
+     * not fit in a single buffer.
+     */
+    public DirectGenomeStore(Config config) {
+        _size = config.getPopulationSize();
+        _numWeights = NeuralNetwork.getNumWeights(config);
+        _hiddenNodes = config.getHiddenNodes();
+        long bytes = (long) _size * _numWeights * Double.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A generation of " + _size + " birds takes " + bytes
+                    + " bytes, more than fits in a direct buffer");
+        }
+        _current = DirectGenomeStore.allocate((int) bytes);
+        _next = DirectGenomeStore.allocate((int) bytes);
+        _agents = new StoredAgent[_size];
+        _strictAgents = new StoredAgent[_size];
+    }
+
+    /**
+     * Returns a direct buffer of the given number of bytes in the native byte order.
+     */
+    private static DoubleBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    /**
+     * Returns the number of birds in a generation.
+     */
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the number of weights of each bird.
+     */
+    @Override
+    public int getNumWeights() {
+        return _numWeights;
+    }
+
+    /**
+     * Returns the weight of the current generation's genome at the given index
+     * of its packed weights.
+     */
+    @Override
+    public double getWeight(int genome, int weight) {
+        return _current.get(genome * _numWeights + weight);
+    }
+
+    /**
+     * Gives the genome of the current generation new random weights.
+     */
+    @Override
+    public void randomize(int genome, Random random) {
+        DirectGenomeStore.fillRandom(_current, genome * _numWeights, _numWeights, random);
+    }
+
+    /**
+     * Gives the genome of the current generation exactly the given packed weights.
+     */
+    @Override
+    public void setWeights(int genome, double[] weights) {
+        for (int i = 0; i < _numWeights; i++) {
+            _current.put(genome * _numWeights + i, weights[i]);
+        }
+    }
+
+    /**
+     * Gives the child in the next generation random weights.
+     */
+    @Override
+    public void createRandom(int child, Random random) {
+        DirectGenomeStore.fillRandom(_next, child * _numWeights, _numWeights, random);
+    }
+
+    /**
+     * Fills the given number of weights from the offset with random weights, in
+     * the same order as a new NeuralNetwork draws them.
+     */
+    private static void fillRandom(DoubleBuffer weights, int offset, int count, Random random) {
+        for (int i = offset; i < offset + count; i++) {
+            weights.put(i, random.nextDouble() * (Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN) + Constants.WEIGHTS_MIN);
+        }
+    }
+
+    /**
+     * Makes the child in the next generation a mutated copy of the parent in the
+     * current generation. The parent's weights are copied in bulk and then mutated
+     * in place, the same way and in the same order as NeuralNetwork's mutate.
+     */
+    @Override
+    public void createChild(int parent, int child, Random random, double rate, double change) {
+        // copied one weight at a time with absolute gets and puts, since a bulk put needs a duplicate of the buffer
+        int from = parent * _numWeights;
+        int to = child * _numWeights;
+        for (int j = 0; j < _numWeights; j++) {
+            _next.put(to + j, _current.get(from + j));
+        }
+
+        for (int i = child * _numWeights; i < child * _numWeights + _numWeights; i++) {
+            if (random.nextDouble() < rate) {
+                double currWeight = _next.get(i);
+                double upperBound = Math.min(currWeight + change, Constants.WEIGHTS_MAX);
+                double lowerBound = Math.max(currWeight - change, Constants.WEIGHTS_MIN);
+                _next.put(i, random.nextDouble() * (upperBound - lowerBound) + lowerBound);
+            }
+        }
+    }
+
+    /**
+     * Makes the next generation the current one. The old current generation's
+     * buffer is reused for the generation after.
+     */
+    @Override
+    public void swap() {
+        DoubleBuffer current = _current;
+        _current = _next;
+        _next = current;
+    }
+
+    /**
+     * Returns a copy of the genome as a network on the heap.
+     */
+    @Override
+    public NeuralNetwork getNetwork(int genome) {
+        double[] weights = new double[_numWeights];
+        for (int i = 0; i < _numWeights; i++) {
+            weights[i] = _current.get(genome * _numWeights + i);
+        }
+        return NeuralNetwork.fromWeights(weights);
+    }
+
+    /**
+     * Returns an agent that flies the genome straight from the buffer. The agent
+     * always reads whichever generation is current, so the same agent is returned
+     * for the genome every time instead of creating one for every game. Agents
+     * keep no state, so they can be used by several threads at once.
+     */
+    @Override
+    public Agent getAgent(int genome, boolean strict) {
+        StoredAgent[] agents = strict ? _strictAgents : _agents;
+        StoredAgent agent = agents[genome];
+        if (agent == null) {
+            agent = new StoredAgent(genome, strict);
+            agents[genome] = agent;
+        }
+        return agent;
+    }
+
+    /**
+     * Runs the forward propagation of the genome without copying its weights or
+     * allocating anything. Does the same operations in the same order as
+     * NeuralNetwork's forwardProp, so the output is exactly the same.
+     */
+    private double forwardProp(int genome, double birdY, double pipeY, double pipeX, boolean strict) {
+        // the same normalization as NeuralNetwork, with the standard gap whatever the course's difficulty
+        double[] inputs = new double[Constants.INPUT_NODES];
+        inputs[0] = (birdY - Constants.BIRD_R) / Constants.GAME_HEIGHT;
+        inputs[1] = (pipeY - Constants.PIPE_GAP_BUFFER) / (Constants.GAME_HEIGHT - 2 * Constants.PIPE_GAP_BUFFER - Constants.PIPE_GAP);
+        inputs[2] = pipeX / Constants.SCENE_WIDTH;
+
+        int syn0 = genome * _numWeights;
+        // the first row of syn1, the weights of the only output node
+        int syn1 = syn0 + _hiddenNodes * Constants.INPUT_NODES;
+        double output = 0;
+        for (int h = 0; h < _hiddenNodes; h++) {
+            int row = syn0 + h * Constants.INPUT_NODES;
+            double sum = 0;
+            for (int i = 0; i < Constants.INPUT_NODES; i++) {
+                sum += _current.get(row + i) * inputs[i];
+            }
+            double exp = strict ? StrictMath.exp(-sum) : Math.exp(-sum);
+            output += _current.get(syn1 + h) * (1 / (1 + exp));
+        }
+        double exp = strict ? StrictMath.exp(-output) : Math.exp(-output);
+        return 1 / (1 + exp);
+    }
+
+    /**
+     * Returns the bytes each bird takes off the heap: its packed weights in both
+     * buffers. The buffers are allocated once for the whole run.
+     */
+    @Override
+    public long getBytesPerBird() {
+        return 2L * _numWeights * Double.BYTES;
+    }
+
+    /**
+     * Returns the name of the store.
+     */
+    @Override
+    public String getName() {
+        return "direct";
+    }
+
+    /**
+     * Agent that jumps according to a genome of the store, like a NetworkAgent.
+     */
+    private class StoredAgent implements Agent {
+        private final int _genome;
+        private final boolean _strict;
+
+        public StoredAgent(int genome, boolean strict) {
+            _genome = genome;
+            _strict = strict;
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public boolean jump(double birdY, double pipeY, double pipeX) {
+            return DirectGenomeStore.this.forwardProp(_genome, birdY, pipeY, pipeX, _strict) >= Constants.JUMP_FREQUENCY;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Genome " + _genome + " of the off-heap store";
+        }
+    }
+}
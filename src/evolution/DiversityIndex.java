@@ -0,0 +1,275 @@
+package evolution;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures how diverse the genomes of a generation are and finds duplicates in O(n).
+ * Exact duplicates are found by hashing the packed weights. Near duplicates are found
+ * by bucketing every weight into a grid cell of size DIVERSITY_CELL and hashing
+ * the cells, so genomes that only differ by small mutations end up in the same bucket.
+ * The mean distance between a sample of random pairs of genomes is also measured.
+ * The genomes are read in place, so indexing a generation allocates only a few
+ * arrays of one int per genome, and an index of a genome store can be updated for
+ * the store's next generation reusing those arrays, so it allocates nothing.
+ */
+public class DiversityIndex {
+    /**
+     * Which duplicates the population replaces with random genomes.
+     */
+    public enum Dedupe {
+        OFF, EXACT, NEAR
+    }
+
+    private int[] _duplicateOf, _nearDuplicateOf;
+    // hashes of every genome and the hash table duplicates are found with, kept between updates
+    private int[] _exactHashes, _cellHashes, _table;
+    private int _numUnique, _numNearUnique;
+    private double _meanDistance;
+
+    /**
+     * Constructor takes the packed weights of every genome in the generation and
+     * the random number generator used to pick the pairs whose distance is sampled.
+     */
+    public DiversityIndex(final double[][] genomes, Random random) {
+        this(new Weights() {
+            @Override
+            public double get(int genome, int weight) {
+                return genomes[genome][weight];
+            }
+        }, genomes.length, genomes.length == 0 ? 0 : genomes[0].length, random);
+    }
+
+    /**
+     * Same as the previous constructor but reads the genomes of the current
+     * generation of a genome store, without copying them onto the heap.
+     */
+    public DiversityIndex(GenomeStore store, Random random) {
+        this.update(store, random);
+    }
+
+    /**
+     * Indexes the current generation of the genome store again in place of the
+     * generation that was indexed before, reusing the arrays if the store has the
+     * same number of genomes. Draws the same random numbers as a new index would.
+     */
+    public void update(final GenomeStore store, Random random) {
+        this.index(new Weights() {
+            @Override
+            public double get(int genome, int weight) {
+                return store.getWeight(genome, weight);
+            }
+        }, store.size(), store.getNumWeights(), random);
+    }
+
+    /**
+     * Helper constructor that takes how to read the weights, the number of genomes
+     * and the number of weights in each.
+     */
+    private DiversityIndex(Weights weights, int n, int numWeights, Random random) {
+        this.index(weights, n, numWeights, random);
+    }
+
+    /**
+     * Indexes the genomes read with the given weights, given the number of genomes
+     * and the number of weights in each.
+     */
+    private void index(Weights weights, int n, int numWeights, Random random) {
+        if (_duplicateOf == null || _duplicateOf.length != n) {
+            _exactHashes = new int[n];
+            _cellHashes = new int[n];
+            _duplicateOf = new int[n];
+            _nearDuplicateOf = new int[n];
+            _table = new int[Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1];
+        }
+        int[] exactHashes = _exactHashes;
+        int[] cellHashes = _cellHashes;
+        for (int i = 0; i < n; i++) {
+            // the same hash codes as Arrays.hashCode of the weights and of the cells
+            int exactHash = 1, cellHash = 1;
+            for (int j = 0; j < numWeights; j++) {
+                double weight = weights.get(i, j);
+                long bits = Double.doubleToLongBits(weight);
+                exactHash = 31 * exactHash + (int) (bits ^ (bits >>> 32));
+                cellHash = 31 * cellHash + DiversityIndex.getCell(weight);
+            }
+            exactHashes[i] = exactHash;
+            cellHashes[i] = cellHash;
+        }
+
+        DiversityIndex.findDuplicates(weights, numWeights, exactHashes, false, _table, _duplicateOf);
+        DiversityIndex.findDuplicates(weights, numWeights, cellHashes, true, _table, _nearDuplicateOf);
+        _numUnique = DiversityIndex.countUnique(_duplicateOf);
+        _numNearUnique = DiversityIndex.countUnique(_nearDuplicateOf);
+        _meanDistance = DiversityIndex.sampleDistance(weights, n, numWeights, random);
+    }
+
+    /**
+     * Returns the grid cell a weight is bucketed into for finding near duplicates.
+     */
+    private static int getCell(double weight) {
+        return (int) Math.floor(weight / Constants.DIVERSITY_CELL);
+    }
+
+    /**
+     * Returns whether two genomes have the same weights, compared the same way as
+     * Arrays.equals, or if cells is true whether all of their weights are in the
+     * same grid cells.
+     */
+    private static boolean isEqual(Weights weights, int numWeights, int a, int b, boolean cells) {
+        for (int j = 0; j < numWeights; j++) {
+            if (cells) {
+                if (DiversityIndex.getCell(weights.get(a, j)) != DiversityIndex.getCell(weights.get(b, j))) {
+                    return false;
+                }
+            }
+            else if (Double.doubleToLongBits(weights.get(a, j)) != Double.doubleToLongBits(weights.get(b, j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * For every genome stores the index of the first equal genome before it, or
+     * -1 if there is none, in duplicateOf, comparing the weights or if cells is true
+     * their grid cells. Uses the given open addressing hash table of genome indices,
+     * which must have a power of two slots and at least twice as many as genomes,
+     * so it runs in O(n) no matter how many duplicates there are.
+     */
+    private static void findDuplicates(Weights weights, int numWeights, int[] hashes, boolean cells, int[] table,
+            int[] duplicateOf) {
+        int capacity = table.length;
+        Arrays.fill(table, -1);
+
+        for (int i = 0; i < hashes.length; i++) {
+            duplicateOf[i] = -1;
+            int slot = DiversityIndex.spread(hashes[i]) & (capacity - 1);
+            while (table[slot] != -1) {
+                int other = table[slot];
+                if (hashes[other] == hashes[i] && DiversityIndex.isEqual(weights, numWeights, other, i, cells)) {
+                    duplicateOf[i] = other;
+                    break;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (duplicateOf[i] == -1) {
+                table[slot] = i;
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of a hash code so that similar hash codes land in different slots.
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the number of keys that are not a duplicate of an earlier key.
+     */
+    private static int countUnique(int[] duplicateOf) {
+        int unique = 0;
+        for (int other: duplicateOf) {
+            if (other == -1) {
+                unique++;
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Returns the mean euclidean distance between random pairs of genomes, divided
+     * by the largest possible distance so that it is between 0 and 1.
+     */
+    private static double sampleDistance(Weights weights, int n, int numWeights, Random random) {
+        if (n < 2) {
+            return 0;
+        }
+        double maxDistance = Math.sqrt(numWeights) * (Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN);
+        double total = 0;
+        for (int s = 0; s < Constants.DIVERSITY_SAMPLES; s++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n - 1);
+            if (b >= a) {
+                b++;
+            }
+            double sum = 0;
+            for (int j = 0; j < numWeights; j++) {
+                double diff = weights.get(a, j) - weights.get(b, j);
+                sum += diff * diff;
+            }
+            total += Math.sqrt(sum);
+        }
+        return total / Constants.DIVERSITY_SAMPLES / maxDistance;
+    }
+
+    /**
+     * Returns the index of the first genome with exactly the same weights as the
+     * genome with the given index, or -1 if it is the first with its weights.
+     */
+    public int getDuplicateOf(int index) {
+        return _duplicateOf[index];
+    }
+
+    /**
+     * Returns the index of the first genome in the same bucket as the genome with
+     * the given index, or -1 if it is the first in its bucket.
+     */
+    public int getNearDuplicateOf(int index) {
+        return _nearDuplicateOf[index];
+    }
+
+    /**
+     * Returns whether the genome with the given index is a duplicate of an earlier
+     * one according to the given kind of deduplication.
+     */
+    public boolean isDuplicate(int index, Dedupe dedupe) {
+        switch (dedupe) {
+            case EXACT:
+                return _duplicateOf[index] != -1;
+            case NEAR:
+                return _nearDuplicateOf[index] != -1;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the number of genomes with distinct weights.
+     */
+    public int getNumUnique() {
+        return _numUnique;
+    }
+
+    /**
+     * Returns the number of distinct near duplicate buckets.
+     */
+    public int getNumNearUnique() {
+        return _numNearUnique;
+    }
+
+    /**
+     * Returns the sampled mean distance between genomes, between 0 and 1.
+     */
+    public double getMeanDistance() {
+        return _meanDistance;
+    }
+
+    /**
+     * Returns the diversity index of the generation: the fraction of genomes that
+     * are not near duplicates of another, between 0 and 1.
+     */
+    public double getDiversity() {
+        return _duplicateOf.length == 0 ? 0 : (double) _numNearUnique / _duplicateOf.length;
+    }
+
+    /**
+     * Reads the weights of the genomes being indexed, wherever they are stored.
+     */
+    private interface Weights {
+        public double get(int genome, int weight);
+    }
+}
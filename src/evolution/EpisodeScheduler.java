@@ -0,0 +1,354 @@
+package evolution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules the episodes of a generation, one bird's full game each, as separate
+ * small tasks instead of one fixed chunk of birds per thread. The episodes are
+ * run by a pool with one thread per processor, which take the next waiting episode
+ * as soon as they finish one, so a few long games no longer hold up a whole chunk.
+ * Work that waits on files, like saving replays, runs on a separate pool of I/O
+ * threads so it never takes a compute thread away from the birds being evaluated.
+ *
+ * Each batch of episodes is scoped: runEpisodes only returns once every episode
+ * of the batch has finished, and if one fails the episodes that have not started
+ * yet are skipped and the failure is thrown. I/O tasks are scoped to the scheduler
+ * and are all waited for, and their failures thrown, by awaitIo or close. The
+ * tasks that have finished are dropped as new ones are submitted, and checkIo
+ * throws the failure of any finished task without waiting for the rest, so a
+ * caller can find out about a failure long before it closes the scheduler.
+ *
+ * The scheduler measures the queueing delay of every episode and I/O task: the
+ * time from when it was submitted to when a thread started running it.
+ */
+public class EpisodeScheduler {
+    private ExecutorService _compute, _io;
+    private int _numThreads;
+    private List<Future<?>> _pendingIo;
+    // the first failure of an I/O task that was dropped from the pending tasks, until it is thrown
+    private IOException _ioFailure;
+    private AtomicInteger _ioTasks;
+    private AtomicLong _ioDelay, _ioMaxDelay, _ioTime;
+    private long _episodes, _episodeDelay, _episodeMaxDelay;
+    private long _lastEpisodes, _lastEpisodeDelay, _lastEpisodeMaxDelay;
+
+    /**
+     * Constructor takes the number of compute threads, usually the number of
+     * processors, and the number of I/O threads.
+     */
+    public EpisodeScheduler(int numThreads, int numIoThreads) {
+        _numThreads = numThreads;
+        _compute = Executors.newFixedThreadPool(numThreads, EpisodeScheduler.daemonThreads("episode"));
+        _io = Executors.newFixedThreadPool(numIoThreads, EpisodeScheduler.daemonThreads("episode-io"));
+        _pendingIo = new ArrayList<Future<?>>();
+        _ioTasks = new AtomicInteger();
+        _ioDelay = new AtomicLong();
+        _ioMaxDelay = new AtomicLong();
+        _ioTime = new AtomicLong();
+    }
+
+    /**
+     * Returns a thread factory for daemon threads named with the given prefix, so
+     * a training run that fails never hangs on the scheduler's threads.
+     */
+    private static ThreadFactory daemonThreads(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * A single bird's game, identified by its index in the batch.
+     */
+    public interface Episode {
+        /**
+         * Runs the episode with the given index and returns the number of ticks simulated.
+         */
+        long run(int index);
+    }
+
+    /**
+     * Runs the given number of episodes on the compute threads and returns the
+     * total number of ticks they simulated. All of the episodes are submitted at
+     * once and each thread takes the next one that has not started yet. Returns
+     * once every episode has finished; if an episode fails, the ones that have not
+     * started are skipped and the failure is thrown once the running ones finish.
+     */
+    public long runEpisodes(final int count, final Episode episode) throws InterruptedException {
+        final long submitted = System.nanoTime();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        List<Callable<long[]>> workers = new ArrayList<Callable<long[]>>();
+        for (int t = 0; t < Math.min(_numThreads, count); t++) {
+            workers.add(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    // ticks, episodes, total queueing delay and the longest one
+                    long[] totals = new long[4];
+                    int index;
+                    while (failed.get() == 0 && (index = next.getAndIncrement()) < count) {
+                        long delay = System.nanoTime() - submitted;
+                        totals[1]++;
+                        totals[2] += delay;
+                        totals[3] = Math.max(totals[3], delay);
+                        try {
+                            totals[0] += episode.run(index);
+                        }
+                        catch (RuntimeException | Error e) {
+                            failed.set(1);
+                            throw e;
+                        }
+                    }
+                    return totals;
+                }
+            });
+        }
+
+        long ticks = 0, episodes = 0, delay = 0, maxDelay = 0;
+        try {
+            for (Future<long[]> result: _compute.invokeAll(workers)) {
+                long[] totals = result.get();
+                ticks += totals[0];
+                episodes += totals[1];
+                delay += totals[2];
+                maxDelay = Math.max(maxDelay, totals[3]);
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Episode failed", e.getCause());
+        }
+        synchronized (this) {
+            _episodes += episodes;
+            _episodeDelay += delay;
+            _episodeMaxDelay = Math.max(_episodeMaxDelay, maxDelay);
+            _lastEpisodes = episodes;
+            _lastEpisodeDelay = delay;
+            _lastEpisodeMaxDelay = maxDelay;
+        }
+        return ticks;
+    }
+
+    /**
+     * Submits a task that waits on I/O to the I/O threads and returns right away.
+     * The task's failure, if any, is thrown by the next call to checkIo, once it
+     * has finished, or awaitIo. Drops the tasks that have already finished.
+     */
+    public void submitIo(final Callable<Void> task) {
+        final long submitted = System.nanoTime();
+        Future<?> result = _io.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                long start = System.nanoTime();
+                long delay = start - submitted;
+                _ioTasks.incrementAndGet();
+                _ioDelay.addAndGet(delay);
+                long max;
+                while (delay > (max = _ioMaxDelay.get()) && !_ioMaxDelay.compareAndSet(max, delay)) {
+                    // another task raised the maximum first, try again
+                }
+                try {
+                    return task.call();
+                }
+                finally {
+                    _ioTime.addAndGet(System.nanoTime() - start);
+                }
+            }
+        });
+        synchronized (_pendingIo) {
+            this.pruneIo();
+            _pendingIo.add(result);
+        }
+    }
+
+    /**
+     * Removes the I/O tasks that have finished from the pending tasks, keeping the
+     * first failure until it is thrown. Must hold the lock on the pending tasks.
+     */
+    private void pruneIo() {
+        for (Iterator<Future<?>> it = _pendingIo.iterator(); it.hasNext();) {
+            Future<?> result = it.next();
+            if (!result.isDone()) {
+                continue;
+            }
+            it.remove();
+            IOException failure = EpisodeScheduler.getIoFailure(result);
+            if (_ioFailure == null) {
+                _ioFailure = failure;
+            }
+        }
+    }
+
+    /**
+     * Returns the failure of an I/O task that has finished as an IOException, or
+     * null if it succeeded.
+     */
+    private static IOException getIoFailure(Future<?> result) {
+        try {
+            result.get();
+            return null;
+        }
+        catch (ExecutionException e) {
+            return e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("I/O task failed", e.getCause());
+        }
+        catch (CancellationException | InterruptedException e) {
+            return new IOException("I/O task did not finish", e);
+        }
+    }
+
+    /**
+     * Throws the first failure of the I/O tasks that have finished so far as an
+     * IOException, without waiting for the ones still running.
+     */
+    public void checkIo() throws IOException {
+        IOException failure;
+        synchronized (_pendingIo) {
+            this.pruneIo();
+            failure = _ioFailure;
+            _ioFailure = null;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits for every I/O task submitted so far to finish. Throws the failure of
+     * the first one that failed, including those already dropped, as an IOException.
+     */
+    public void awaitIo() throws IOException, InterruptedException {
+        List<Future<?>> pending;
+        IOException failure;
+        synchronized (_pendingIo) {
+            pending = new ArrayList<Future<?>>(_pendingIo);
+            _pendingIo.clear();
+            failure = _ioFailure;
+            _ioFailure = null;
+        }
+        for (Future<?> result: pending) {
+            try {
+                result.get();
+            }
+            catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = EpisodeScheduler.getIoFailure(result);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the number of I/O tasks that have been submitted but have not finished yet.
+     */
+    public int getPendingIo() {
+        int pending = 0;
+        synchronized (_pendingIo) {
+            for (Future<?> result: _pendingIo) {
+                if (!result.isDone()) {
+                    pending++;
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the mean queueing delay of the episodes of the last batch in milliseconds.
+     */
+    public synchronized double getLastMeanDelay() {
+        return _lastEpisodes > 0 ? _lastEpisodeDelay / 1e6 / _lastEpisodes : 0;
+    }
+
+    /**
+     * Returns the longest queueing delay of the episodes of the last batch in milliseconds.
+     */
+    public synchronized double getLastMaxDelay() {
+        return _lastEpisodeMaxDelay / 1e6;
+    }
+
+    /**
+     * Returns the total number of episodes run.
+     */
+    public synchronized long getEpisodes() {
+        return _episodes;
+    }
+
+    /**
+     * Returns the mean queueing delay of all of the episodes in milliseconds.
+     */
+    public synchronized double getMeanDelay() {
+        return _episodes > 0 ? _episodeDelay / 1e6 / _episodes : 0;
+    }
+
+    /**
+     * Returns the longest queueing delay of any episode in milliseconds.
+     */
+    public synchronized double getMaxDelay() {
+        return _episodeMaxDelay / 1e6;
+    }
+
+    /**
+     * Returns the number of I/O tasks that have started.
+     */
+    public int getIoTasks() {
+        return _ioTasks.get();
+    }
+
+    /**
+     * Returns the mean queueing delay of the I/O tasks in milliseconds.
+     */
+    public double getIoMeanDelay() {
+        int tasks = _ioTasks.get();
+        return tasks > 0 ? _ioDelay.get() / 1e6 / tasks : 0;
+    }
+
+    /**
+     * Returns the longest queueing delay of any I/O task in milliseconds.
+     */
+    public double getIoMaxDelay() {
+        return _ioMaxDelay.get() / 1e6;
+    }
+
+    /**
+     * Returns the total time the I/O tasks have spent running in milliseconds.
+     */
+    public double getIoTime() {
+        return _ioTime.get() / 1e6;
+    }
+
+    /**
+     * Waits for the remaining I/O tasks and shuts both pools down.
+     */
+    public void close() throws IOException, InterruptedException {
+        try {
+            this.awaitIo();
+        }
+        finally {
+            _compute.shutdown();
+            _io.shutdown();
+            _io.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
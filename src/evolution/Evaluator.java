@@ -0,0 +1,273 @@
+package evolution;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line entry point that evaluates saved genomes without training them.
+ * Every genome flies the same set of seeded courses in parallel with no mutation
+ * and no rendering, and the distribution of its results is reported: ticks survived,
+ * pipes passed, what killed it and where. Used as a regression gate before promoting
+ * a newly trained genome, so it exits with status 1 if any genome's median ticks
+ * survived is below the value given with --min-median.
+ *
+ * Any agent registered with an AgentProvider can be evaluated on the same courses
+ * with --agent, so different kinds of agents can be compared head to head.
+ * The tick budget and the tick length come from the Config, which can be read with
+ * --config and overridden with --set key=value just like for the Trainer; --ticks
+ * is a shortcut for --set max-fitness=n.
+ *
+ * Usage: java -cp flappybird.jar evolution.Evaluator [--genomes path ...] [--agent name[:argument] ...]
+ * [--config path] [--set key=value]... [--courses n] [--threads n] [--seed n] [--ticks n] [--min-median n] [--physics double|fixed] [--collisions tick|event]
+ */
+public class Evaluator {
+    private List<Path> _genomeFiles = new ArrayList<Path>();
+    private List<String> _agentSpecs = new ArrayList<String>();
+    private int _numCourses = 1000;
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    private long _seed = 0;
+    private Config _config;
+    private int _minMedian = 0;
+    private Simulation.Physics _physics = Simulation.Physics.DOUBLE;
+    private boolean _eventDriven = false;
+
+    /**
+     * Constructor takes the command line arguments and sets the options they specify.
+     * Options that are not specified keep their defaults.
+     */
+    public Evaluator(String[] args) {
+        Path configPath = null;
+        Properties overrides = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--genomes":
+                    _genomeFiles.add(Paths.get(value));
+                    break;
+                case "--agent":
+                    // fails early with the list of known agents if the name is wrong
+                    Agents.getProvider(Agents.getName(value));
+                    _agentSpecs.add(value);
+                    break;
+                case "--courses":
+                    _numCourses = Options.parsePositive(option, value);
+                    break;
+                case "--threads":
+                    _numThreads = Options.parsePositive(option, value);
+                    break;
+                case "--seed":
+                    _seed = Long.parseLong(value);
+                    break;
+                case "--config":
+                    configPath = Paths.get(value);
+                    break;
+                case "--set":
+                    Config.parseOverride(value, overrides);
+                    break;
+                case "--ticks":
+                    overrides.setProperty(Config.MAX_FITNESS, value);
+                    break;
+                case "--min-median":
+                    _minMedian = Options.parsePositive(option, value);
+                    break;
+                case "--physics":
+                    _physics = Simulation.Physics.valueOf(value.toUpperCase());
+                    break;
+                case "--collisions":
+                    _eventDriven = Options.parseCollisions(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (_genomeFiles.isEmpty() && _agentSpecs.isEmpty()) {
+            throw new IllegalArgumentException("No genomes or agents given");
+        }
+        try {
+            _config = Config.load(configPath, overrides);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read config file " + configPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the genomes and creates the agents, evaluates each of them on every
+     * course and prints the report. Returns whether every one passed the median gate.
+     */
+    public boolean evaluate() throws IOException, InterruptedException {
+        List<String> names = new ArrayList<String>();
+        List<Agent[]> contestants = new ArrayList<Agent[]>();
+        int numChunks = (_numCourses + this.getChunkSize() - 1) / this.getChunkSize();
+        for (Path file: _genomeFiles) {
+            for (NeuralNetwork nn: GenomeFile.read(file)) {
+                // network agents keep no state so every thread can share one
+                Agent[] agents = new Agent[numChunks];
+                Arrays.fill(agents, new NetworkAgent(nn, _physics == Simulation.Physics.FIXED));
+                names.add("genome " + (names.size() + 1));
+                contestants.add(agents);
+            }
+        }
+        for (String spec: _agentSpecs) {
+            Agent[] agents = new Agent[numChunks];
+            for (int i = 0; i < agents.length; i++) {
+                agents[i] = Agents.create(spec, _physics);
+            }
+            names.add(spec);
+            contestants.add(agents);
+        }
+
+        Random random = new Random(_seed);
+        Simulation[] simulations = new Simulation[_numCourses];
+        for (int i = 0; i < simulations.length; i++) {
+            simulations[i] = new Simulation(new Course(random.nextLong(), _config.getMaxFitness()), _config, _physics,
+                    _eventDriven);
+        }
+
+        System.out.println("Evaluating " + contestants.size() + " agents on " + _numCourses + " courses on "
+                + _numThreads + " threads (seed " + _seed + ", " + _config.getMaxFitness() + " ticks)");
+
+        ExecutorService executor = Executors.newFixedThreadPool(_numThreads);
+        boolean passed = true;
+        try {
+            for (int c = 0; c < contestants.size(); c++) {
+                long start = System.nanoTime();
+                Simulation.Outcome[] outcomes = this.run(contestants.get(c), simulations, executor);
+                long elapsed = System.nanoTime() - start;
+                int median = this.report(names.get(c), outcomes, elapsed);
+                if (median < _minMedian) {
+                    System.out.println("  FAILED: median ticks " + median + " is below " + _minMedian);
+                    passed = false;
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        return passed;
+    }
+
+    /**
+     * Returns the number of courses each thread runs.
+     */
+    private int getChunkSize() {
+        return (_numCourses + _numThreads - 1) / _numThreads;
+    }
+
+    /**
+     * Runs an agent on every course, split into one chunk of courses per thread,
+     * and returns the outcome of each game. Takes one agent for each chunk since
+     * agents are not thread safe.
+     */
+    private Simulation.Outcome[] run(final Agent[] agents, final Simulation[] simulations, ExecutorService executor)
+            throws InterruptedException {
+        final Simulation.Outcome[] outcomes = new Simulation.Outcome[simulations.length];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        int chunk = this.getChunkSize();
+        for (int start = 0; start < simulations.length; start += chunk) {
+            final Agent agent = agents[start / chunk];
+            final int from = start;
+            final int to = Math.min(start + chunk, simulations.length);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = from; i < to; i++) {
+                        outcomes[i] = new Simulation.Outcome();
+                        simulations[i].run(agent, outcomes[i]);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> result: executor.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Agent evaluation failed", e.getCause());
+        }
+        return outcomes;
+    }
+
+    /**
+     * Prints the distribution of the outcomes of one agent and returns its
+     * median ticks survived.
+     */
+    private int report(String name, Simulation.Outcome[] outcomes, long nanos) {
+        int[] ticks = new int[outcomes.length];
+        int[] scores = new int[outcomes.length];
+        int[] causes = new int[Simulation.Cause.values().length];
+        int[] failurePipes = new int[outcomes.length];
+        int numFailures = 0;
+        long totalTicks = 0, totalChecks = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            ticks[i] = outcomes[i].getFitness();
+            totalTicks += ticks[i];
+            totalChecks += outcomes[i].getChecks();
+            scores[i] = outcomes[i].getScore();
+            causes[outcomes[i].getCause().ordinal()]++;
+            if (outcomes[i].getCause() != Simulation.Cause.SURVIVED) {
+                failurePipes[numFailures++] = outcomes[i].getPipe();
+            }
+        }
+
+        System.out.printf("%s: %.1f%% survived, %.0f games/s%n", name,
+                100.0 * causes[Simulation.Cause.SURVIVED.ordinal()] / outcomes.length,
+                nanos > 0 ? outcomes.length * 1e9 / nanos : 0.0);
+        int median = Evaluator.printDistribution("ticks", ticks, ticks.length);
+        Evaluator.printDistribution("score", scores, scores.length);
+        System.out.printf("  failures  top pipe %d  bottom pipe %d  fell %d%n",
+                causes[Simulation.Cause.TOP_PIPE.ordinal()], causes[Simulation.Cause.BOTTOM_PIPE.ordinal()],
+                causes[Simulation.Cause.FELL.ordinal()]);
+        if (numFailures > 0) {
+            Evaluator.printDistribution("failure pipe", failurePipes, numFailures);
+        }
+        System.out.printf("  collision checks on %.2f%% of ticks%n", totalTicks > 0 ? 100.0 * totalChecks / totalTicks : 0.0);
+        return median;
+    }
+
+    /**
+     * Prints the minimum, percentiles, maximum and mean of the first count values.
+     * Returns the median.
+     */
+    private static int printDistribution(String name, int[] values, int count) {
+        FitnessStats stats = new FitnessStats(values, count);
+        System.out.printf("  %-12s min %d  p10 %d  median %d  p90 %d  max %d  mean %.1f%n", name, stats.getMin(),
+                stats.getP10(), stats.getMedian(), stats.getP90(), stats.getMax(), stats.getMean());
+        return stats.getMedian();
+    }
+
+    public static void main(String[] argv) throws IOException, InterruptedException {
+        Evaluator evaluator;
+        try {
+            evaluator = new Evaluator(argv);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp flappybird.jar evolution.Evaluator [--genomes path ...] [--agent name[:argument] ...]"
+                    + " [--config path] [--set key=value]... [--courses n] [--threads n] [--seed n] [--ticks n] [--min-median n] [--physics double|fixed] [--collisions tick|event]");
+            System.exit(2);
+            return;
+        }
+        if (!evaluator.evaluate()) {
+            System.exit(1);
+        }
+    }
+}
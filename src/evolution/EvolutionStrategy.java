@@ -0,0 +1,144 @@
+package evolution;
+
+import java.util.Random;
+
+/**
+ * Optimizer that follows the evolution strategy popularized by OpenAI. Keeps a
+ * single mean genome and fills each generation with copies of it perturbed by
+ * gaussian noise, in antithetic pairs: for every noise vector one bird gets the
+ * mean plus the noise and the next the mean minus the noise, which cancels out
+ * most of the noise in the gradient estimate. The mean is then moved in the
+ * direction of the noise weighted by how well each pair did. Fitness is replaced
+ * by centered ranks so a single lucky bird cannot drag the mean too far. With an
+ * odd number of birds, the last bird is the unperturbed mean.
+ * <p>
+ * Early on every bird often dies on the same tick at the first pipe, which
+ * would leave no gradient at all, so birds with equal fitness are ranked by how
+ * far they missed the middle of the gap. A mean that still gets stuck on such a
+ * plateau is abandoned: after a number of generations without a new best
+ * fitness the strategy restarts from a new random mean.
+ */
+public class EvolutionStrategy implements Optimizer {
+    private Config _config;
+    private Random _random;
+    private double[] _mean;
+    private double[][] _noise;
+    private int _size;
+    private double _sigma, _learningRate;
+    // best fitness since the last restart and the generations since it last improved
+    private int _bestFitness, _staleGenerations;
+
+    /**
+     * Constructor takes the config, which gives the number of birds in each
+     * generation and the size of their networks, and the random number generator
+     * used for the initial mean and all of the noise.
+     */
+    public EvolutionStrategy(Config config, Random random) {
+        _config = config;
+        _random = random;
+        _size = config.getPopulationSize();
+        _sigma = Constants.ES_SIGMA;
+        _learningRate = Constants.ES_LEARNING_RATE;
+        _mean = new NeuralNetwork(config, random).getWeights();
+        _noise = new double[_size / 2][_mean.length];
+    }
+
+    /**
+     * Draws new noise and returns the packed weights of the next generation.
+     */
+    @Override
+    public double[][] ask() {
+        double[][] genomes = new double[_size][_mean.length];
+        for (int k = 0; k < _noise.length; k++) {
+            double[] noise = _noise[k];
+            double[] plus = genomes[2 * k];
+            double[] minus = genomes[2 * k + 1];
+            for (int j = 0; j < noise.length; j++) {
+                noise[j] = _random.nextGaussian();
+                plus[j] = _mean[j] + _sigma * noise[j];
+                minus[j] = _mean[j] - _sigma * noise[j];
+            }
+        }
+        if (_size % 2 == 1) {
+            System.arraycopy(_mean, 0, genomes[_size - 1], 0, _mean.length);
+        }
+        return genomes;
+    }
+
+    /**
+     * Takes the fitness of the generation created by the last call to ask and
+     * moves the mean along the estimated gradient of the fitness, or restarts
+     * from a new random mean if the fitness has stagnated.
+     */
+    @Override
+    public void tell(int[] fitness, double[] misses) {
+        int best = 0;
+        for (int f : fitness) {
+            best = Math.max(best, f);
+        }
+        if (best > _bestFitness) {
+            _bestFitness = best;
+            _staleGenerations = 0;
+        }
+        else if (++_staleGenerations >= Constants.ES_RESTART_GENERATIONS) {
+            _mean = new NeuralNetwork(_config, _random).getWeights();
+            _bestFitness = 0;
+            _staleGenerations = 0;
+            return;
+        }
+
+        double[] utility = EvolutionStrategy.getCenteredRanks(fitness, misses);
+        double step = _learningRate / (2 * _noise.length * _sigma);
+        for (int k = 0; k < _noise.length; k++) {
+            double weight = step * (utility[2 * k] - utility[2 * k + 1]);
+            double[] noise = _noise[k];
+            for (int j = 0; j < noise.length; j++) {
+                _mean[j] += weight * noise[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the rank of every bird scaled to between -0.5 for the worst and 0.5
+     * for the best. Many birds die on the same tick, so those are ranked by how
+     * far they missed the gap, and birds equal in both share the average of their
+     * ranks, since ranking them by index would favor one side of every antithetic
+     * pair.
+     */
+    private static double[] getCenteredRanks(int[] fitness, double[] misses) {
+        double[] ranks = new double[fitness.length];
+        if (fitness.length < 2) {
+            return ranks;
+        }
+        int[] order = Selection.rank(fitness, misses);
+        int start = 0;
+        while (start < order.length) {
+            int end = start + 1;
+            while (end < order.length && fitness[order[end]] == fitness[order[start]]
+                    && misses[order[end]] == misses[order[start]]) {
+                end++;
+            }
+            double rank = 0.5 - (start + end - 1) / 2.0 / (order.length - 1);
+            for (int i = start; i < end; i++) {
+                ranks[order[i]] = rank;
+            }
+            start = end;
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns the name of the optimizer.
+     */
+    @Override
+    public String getName() {
+        return "es";
+    }
+
+    /**
+     * Returns the current mean genome.
+     */
+    public double[] getMean() {
+        return _mean;
+    }
+}
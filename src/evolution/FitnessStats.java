@@ -0,0 +1,102 @@
+package evolution;
+
+/**
+ * Summary statistics of the fitness values of a generation (or any other set of
+ * int results). The minimum, maximum and mean are found in a single pass and the
+ * percentiles with quickselect on a copy, so the whole summary is O(n).
+ */
+public class FitnessStats {
+    private int _count, _min, _max, _p10, _median, _p90;
+    private double _mean;
+
+    /**
+     * Constructor takes the values to summarize.
+     */
+    public FitnessStats(int[] values) {
+        this(values, values.length);
+    }
+
+    /**
+     * Constructor takes an array and the number of values at its start to summarize.
+     */
+    public FitnessStats(int[] values, int count) {
+        _count = count;
+        if (count == 0) {
+            return;
+        }
+
+        _min = Integer.MAX_VALUE;
+        _max = Integer.MIN_VALUE;
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            int value = values[i];
+            _min = Math.min(_min, value);
+            _max = Math.max(_max, value);
+            total += value;
+        }
+        _mean = (double) total / count;
+
+        int[] copy = new int[count];
+        System.arraycopy(values, 0, copy, 0, count);
+        _p10 = this.percentile(copy, 10);
+        _median = this.percentile(copy, 50);
+        _p90 = this.percentile(copy, 90);
+    }
+
+    /**
+     * Returns the given percentile of the values using the nearest rank method.
+     */
+    private int percentile(int[] values, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * _count);
+        return Selection.kthSmallest(values, _count, Math.max(0, rank - 1));
+    }
+
+    /**
+     * Returns the number of values.
+     */
+    public int getCount() {
+        return _count;
+    }
+
+    /**
+     * Returns the smallest value.
+     */
+    public int getMin() {
+        return _min;
+    }
+
+    /**
+     * Returns the largest value.
+     */
+    public int getMax() {
+        return _max;
+    }
+
+    /**
+     * Returns the mean of the values.
+     */
+    public double getMean() {
+        return _mean;
+    }
+
+    /**
+     * Returns the 10th percentile.
+     */
+    public int getP10() {
+        return _p10;
+    }
+
+    /**
+     * Returns the median.
+     */
+    public int getMedian() {
+        return _median;
+    }
+
+    /**
+     * Returns the 90th percentile.
+     */
+    public int getP90() {
+        return _p90;
+    }
+}
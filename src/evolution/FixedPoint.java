@@ -0,0 +1,41 @@
+package evolution;
+
+/**
+ * Constants of the game converted to integers for the fixed point physics mode of
+ * the Simulation. Positions are in micropixels and velocities in millipixels per
+ * second, with the timeline duration in whole milliseconds. In those units every
+ * step of the physics is an exact integer multiplication:
+ * velocity (millipixels/s) * duration (ms) = distance (micropixels) and
+ * gravity (pixels/s^2) * duration (ms) = change in velocity (millipixels/s).
+ * So the same game produces bit for bit the same result on any platform and JIT tier.
+ */
+public class FixedPoint {
+    // micropixels per pixel
+    public static final int UNIT = 1000000;
+    // millipixels per pixel, the unit of velocities
+    public static final int VELOCITY_UNIT = 1000;
+
+    public static final int REBOUND_VELOCITY = Constants.REBOUND_VELOCITY * VELOCITY_UNIT;
+
+    public static final int BIRD_X = FixedPoint.toFixed(Constants.BIRD_X);
+    public static final int BIRD_START_Y = FixedPoint.toFixed(Constants.BIRD_START_Y);
+    public static final int BIRD_R = FixedPoint.toFixed(Constants.BIRD_R);
+    public static final long BIRD_R_SQUARED = (long) BIRD_R * BIRD_R;
+    public static final int GAME_HEIGHT = FixedPoint.toFixed(Constants.GAME_HEIGHT);
+    public static final int PIPE_WIDTH = FixedPoint.toFixed(Constants.PIPE_WIDTH);
+    public static final int PIPE_GAP = FixedPoint.toFixed(Constants.PIPE_GAP);
+
+    /**
+     * Converts a value in pixels to micropixels, rounding to the nearest one.
+     */
+    public static int toFixed(double pixels) {
+        return (int) Math.round(pixels * UNIT);
+    }
+
+    /**
+     * Converts a value in micropixels back to pixels.
+     */
+    public static double toPixels(long fixed) {
+        return (double) fixed / UNIT;
+    }
+}
@@ -1,52 +1,104 @@
 package evolution;
 
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
-import javafx.util.Duration;
+import javafx.scene.layout.VBox;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 /**
  * Main game class that handles most of the logic. Generates the bird(s) and pipes,
- * moves them according to the timeline, manages keyboard and button input, checks
+ * moves them according to the game loop, manages keyboard and button input, checks
  * for game over and resets accordingly.
+ *
+ * The game loop runs on every frame and advances the game in fixed ticks of the
+ * configured duration: the time since the last frame, times the speed, is added to
+ * an accumulator and a tick is taken for every full duration in it. So the physics
+ * run at the same speed whatever the frame rate and even when frames are dropped.
+ * Key presses are not applied when they happen but queued with the time they
+ * happened at and applied just before the first tick that starts after them, so
+ * every jump lands on an exact tick. The time from a key press to the end of the
+ * frame that shows the jump is reported as the input latency.
  */
 public class FlappyBird {
     private Pane _gamePane;
     private Flappable _bird;
     private ArrayList<Pipe> _pipes;
     private boolean _isSmart;
-    private Timeline _timeline;
+    private GameLoop _gameLoop;
+    private Agent _agent;
+    private Course _course;
+    private int _nextPipeIndex;
+    private VBox _statsPane;
+    private Config _config;
+    // times of the key presses that have not been applied yet, in nanoseconds
+    private ArrayDeque<Long> _inputs;
+    private long _lastLatency, _maxLatency, _totalLatency;
+    private int _numLatencies;
 
     /**
      * Game constructor takes the game pane and the bottom control pane as parameters
      * to add graphic game elements, stats, and buttons to them. Takes a boolean
      * parameter which tells whether or not the manual or smart game was selected.
-     * Generates the first pipe and the initial bird(s). Sets up the timeline
+     * Generates the first pipe and the initial bird(s). Sets up the game loop
      * and the KeyHandler or speed buttons depending on isSmart. Adds stats to the
-     * control pane.
+     * control pane. The config decides the tick length and the population.
      */
-    public FlappyBird(Pane gamePane, HBox controlPane, boolean isSmart) {
+    public FlappyBird(Pane gamePane, HBox controlPane, boolean isSmart, Config config) {
+        this(gamePane, controlPane, isSmart, null, null, config);
+    }
+
+    /**
+     * Constructor used to play back a replay. Does the same as the previous
+     * constructor but the pipes are generated from the course the replay was
+     * recorded on and the bird jumps according to the replay, with the tick
+     * length the replay was recorded with. The game only has double physics, so
+     * the replay must have been recorded with them.
+     */
+    public FlappyBird(Pane gamePane, HBox controlPane, Replay replay, Config config) {
+        this(gamePane, controlPane, false, new ReplayAgent(replay), replay.getCourse(),
+                config.with(Config.DURATION, Double.toString(replay.getDuration())));
+    }
+
+    /**
+     * Constructor used to watch an agent play. Does the same as the first
+     * constructor but the bird jumps whenever the agent decides to.
+     */
+    public FlappyBird(Pane gamePane, HBox controlPane, Agent agent, Config config) {
+        this(gamePane, controlPane, false, agent, null, config);
+    }
+
+    /**
+     * Helper constructor shared by the public constructors. The course is null
+     * if the pipes are random.
+     */
+    private FlappyBird(Pane gamePane, HBox controlPane, boolean isSmart, Agent agent, Course course, Config config) {
         _gamePane = gamePane;
         _isSmart = isSmart;
+        _agent = agent;
+        _course = course;
+        _config = config;
+        _inputs = new ArrayDeque<Long>();
 
         _pipes = new ArrayList<Pipe>();
 
-        _pipes.add(new Pipe(Constants.SCENE_WIDTH, Math.random() * Constants.GAME_HEIGHT, _gamePane));
+        this.addFirstPipe();
 
         this.instantiateBirds();
-        controlPane.getChildren().add(_bird.getStats());
+        _statsPane = new VBox();
+        controlPane.getChildren().add(_statsPane);
+        this.updateStats();
 
-        this.setupTimeline();
-        if (!isSmart) {
+        this.setupGameLoop();
+        if (this.isManual()) {
             _gamePane.addEventHandler(KeyEvent.KEY_PRESSED, new KeyHandler());
             _gamePane.setFocusTraversable(true);
         }
@@ -55,21 +107,71 @@ public class FlappyBird {
         }
     }
 
+    /**
+     * Adds the first pipe at the right edge of the screen. When playing back a
+     * replay it is the first pipe of the replay's course.
+     */
+    private void addFirstPipe() {
+        if (_course != null) {
+            _nextPipeIndex = 0;
+            _pipes.add(this.makeCoursePipe(Constants.SCENE_WIDTH));
+        }
+        else {
+            _pipes.add(new Pipe(Constants.SCENE_WIDTH, Math.random() * Constants.GAME_HEIGHT, _gamePane));
+        }
+    }
+
+    /**
+     * Makes the next pipe of the replay's course at the given x value. Falls back
+     * to a random pipe if the course has run out of pipes.
+     */
+    private Pipe makeCoursePipe(double x) {
+        if (_nextPipeIndex < _course.getNumPipes()) {
+            return new Pipe(x, _course, _nextPipeIndex++, _gamePane);
+        }
+        return new Pipe(x, _pipes.get(_pipes.size() - 1).getGapY(), _gamePane);
+    }
+
     /**
      * Helper method to instantiate the right type of bird depending on the game
-     * type. If it's smart then a population, if not then a regular bird.
+     * type. If it's smart then a population, if there is an agent then a bird
+     * flown by the agent, if not then a regular bird.
      */
     private void instantiateBirds() {
         if (_isSmart) {
-            _bird = new Population(_gamePane, _pipes);
+            _bird = new Population(_gamePane, _pipes, _config);
+        }
+        else if (_agent != null) {
+            _bird = new AgentBird(_gamePane, _pipes, _config, _agent);
         }
         else {
-            _bird = new Bird(_gamePane, _pipes);
+            _bird = new Bird(_gamePane, _pipes, _config);
+        }
+    }
+
+    /**
+     * Shows the current stats of the bird/population in the stats pane, with one
+     * label for each stat. The manual game also shows the input latency.
+     */
+    private void updateStats() {
+        GameStats stats = _bird.getStats();
+        if (this.isManual() && _numLatencies > 0) {
+            stats.add("Input latency", String.format("%.1f ms (avg %.1f, max %.1f)", _lastLatency / 1e6,
+                    _totalLatency / 1e6 / _numLatencies, _maxLatency / 1e6));
+        }
+        while (_statsPane.getChildren().size() < stats.size()) {
+            _statsPane.getChildren().add(new Label());
+        }
+        while (_statsPane.getChildren().size() > stats.size()) {
+            _statsPane.getChildren().remove(_statsPane.getChildren().size() - 1);
+        }
+        for (int i = 0; i < stats.size(); i++) {
+            ((Label) _statsPane.getChildren().get(i)).setText(stats.toString(i));
         }
     }
 
     /**
-     * Moves the pipes across the screen according to the timeline. Generates new
+     * Moves the pipes across the screen on every tick. Generates new
      * pipes and removes the ones off screen.
      */
     private void scroll() {
@@ -87,8 +189,13 @@ public class FlappyBird {
     private void generatePipes() {
         Pipe lastPipe = _pipes.get(_pipes.size() - 1);
         if (lastPipe.getX() < Constants.SCENE_WIDTH) {
-            Pipe newPipe = new Pipe(lastPipe.getX() + Constants.PIPE_WIDTH + Constants.PIPE_X_SPACE, lastPipe.getGapY(), _gamePane);
-            _pipes.add(newPipe);
+            double x = lastPipe.getX() + Constants.PIPE_WIDTH + Constants.PIPE_X_SPACE;
+            if (_course != null) {
+                _pipes.add(this.makeCoursePipe(x));
+            }
+            else {
+                _pipes.add(new Pipe(x, lastPipe.getGapY(), _gamePane));
+            }
         }
     }
 
@@ -103,13 +210,59 @@ public class FlappyBird {
     }
 
     /**
-     * Sets up the keyframe and timeline.
+     * Sets up and starts the game loop.
      */
-    private void setupTimeline() {
-        KeyFrame kf = new KeyFrame(Duration.seconds(Constants.DURATION), new TimeHandler());
-        _timeline = new Timeline(kf);
-        _timeline.setCycleCount(Animation.INDEFINITE);
-        _timeline.play();
+    private void setupGameLoop() {
+        _gameLoop = new GameLoop(Math.round(_config.getDuration() * 1e9));
+        _gameLoop.start();
+    }
+
+    /**
+     * Returns whether this is the manual game, where the player makes the bird jump.
+     */
+    private boolean isManual() {
+        return !_isSmart && _agent == null;
+    }
+
+    /**
+     * Advances the game by one tick: moves the birds, scrolls the pipes along the
+     * screen, and checks if the game needs to be reset. If it's a smart game
+     * also calls on the population to have each SmartBird decide whether or not
+     * to jump, and if there is an agent has it decide for the bird.
+     */
+    private void tick() {
+        _bird.moveY();
+        if (_isSmart || _agent != null) {
+            _bird.jump();
+        }
+        this.scroll();
+        this.checkGameOver();
+    }
+
+    /**
+     * Makes the bird jump for every queued key press that happened at or before
+     * the given time, and adds the times of those presses to the given list so
+     * their latency can be measured once the frame is done.
+     */
+    private void applyInputs(long time, ArrayList<Long> applied) {
+        while (!_inputs.isEmpty() && _inputs.peekFirst() <= time) {
+            applied.add(_inputs.pollFirst());
+            _bird.jump();
+        }
+    }
+
+    /**
+     * Records the latency of the key presses applied on this frame, from when each
+     * key was pressed until the frame was done.
+     */
+    private void recordLatencies(ArrayList<Long> applied) {
+        long now = System.nanoTime();
+        for (long pressed: applied) {
+            _lastLatency = now - pressed;
+            _maxLatency = Math.max(_maxLatency, _lastLatency);
+            _totalLatency += _lastLatency;
+            _numLatencies++;
+        }
     }
 
     /**
@@ -122,13 +275,14 @@ public class FlappyBird {
                 _pipes.get(i).removeGraphic();
                 _pipes.remove(_pipes.get(i));
             }
-            _pipes.add(new Pipe(Constants.SCENE_WIDTH, Math.random() * Constants.GAME_HEIGHT, _gamePane));
+            this.addFirstPipe();
             _bird.reset();
         }
     }
 
     /**
-     * Makes the speed buttons that adjust the timeline rate for the smart game.
+     * Makes the speed buttons that adjust the game speed for the smart game
+     * and replays.
      * Takes the bottom controlPane as a parameter to add the buttons to.
      */
     private void makeSpeedButtons(HBox controlPane) {
@@ -144,32 +298,62 @@ public class FlappyBird {
     }
 
     /**
-     * Called on every timeline tick to move the birds, scroll the pipes along
-     * the screen, and check if the game needs to be reset. If it's a smart game
-     * also calls on the population to have each SmartBird decide whether or
-     * not to jump.
+     * Called on every frame. Adds the time since the previous frame, times the
+     * speed, to the accumulator and takes a tick for every full tick duration in
+     * it, applying the key presses that happened before each tick starts. Frames
+     * that come very late only count for Constants.MAX_FRAME_TIME so the game
+     * never tries to catch up on a long pause. Shows the updated stats once the
+     * ticks are done.
      */
-    private class TimeHandler implements EventHandler<ActionEvent> {
+    private class GameLoop extends AnimationTimer {
+        private long _tickNanos;
+        private long _lastFrame;
+        private long _accumulator;
+        private double _rate;
+        private ArrayList<Long> _applied;
+
+        public GameLoop(long tickNanos) {
+            _tickNanos = tickNanos;
+            _lastFrame = -1;
+            _accumulator = 0;
+            _rate = 1;
+            _applied = new ArrayList<Long>();
+        }
+
         @Override
-        public void handle(ActionEvent event) {
-            _bird.moveY();
-            if (_isSmart) {
-                _bird.jump();
+        public void handle(long now) {
+            if (_lastFrame < 0) {
+                _lastFrame = now;
+            }
+            long elapsed = Math.min(now - _lastFrame, (long) (Constants.MAX_FRAME_TIME * 1e9));
+            _lastFrame = now;
+            _accumulator += (long) (elapsed * _rate);
+
+            _applied.clear();
+            while (_accumulator >= _tickNanos) {
+                // the tick starts this long before now in game time, which is real time in the manual game
+                applyInputs(now - _accumulator, _applied);
+                tick();
+                _accumulator -= _tickNanos;
             }
-            scroll();
-            checkGameOver();
+            updateStats();
+            recordLatencies(_applied);
+        }
+
+        public void setRate(double rate) {
+            _rate = rate;
         }
     }
 
     /**
-     * Instantiated for the manual game. Causes the bird to jump when the space
-     * bar is pressed.
+     * Instantiated for the manual game. Queues a jump with the time the space bar
+     * was pressed, which the game loop applies at the next tick.
      */
     private class KeyHandler implements EventHandler<KeyEvent> {
         @Override
         public void handle(KeyEvent event) {
             if (event.getCode() == KeyCode.SPACE) {
-                _bird.jump();
+                _inputs.addLast(System.nanoTime());
             }
 
             event.consume();
@@ -177,9 +361,9 @@ public class FlappyBird {
     }
 
     /**
-     * Instantiated for the smart game. Takes a parameter of the timeline rate for
-     * each speed button. When each button is pressed sets the timeline to the
-     * corresponding rate.
+     * Instantiated for the smart game. Takes a parameter of the game speed for
+     * each speed button. When each button is pressed sets the game loop to the
+     * corresponding speed.
      */
     private class SpeedHandler implements EventHandler<ActionEvent> {
         private double _rate;
@@ -190,7 +374,7 @@ public class FlappyBird {
 
         @Override
         public void handle(ActionEvent event) {
-            _timeline.setRate(_rate);
+            _gameLoop.setRate(_rate);
         }
     }
 }
@@ -0,0 +1,59 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain list of the named stats of a game, in the order they are displayed. Returned
+ * by the Flappable classes instead of JavaFX labels so that they know nothing about
+ * how the stats are shown; the game class turns them into labels.
+ */
+public class GameStats {
+    private List<String> _names;
+    private List<String> _values;
+
+    /**
+     * Constructor creates an empty list of stats.
+     */
+    public GameStats() {
+        _names = new ArrayList<String>();
+        _values = new ArrayList<String>();
+    }
+
+    /**
+     * Adds a stat to the end of the list and returns the stats so calls can be chained.
+     */
+    public GameStats add(String name, Object value) {
+        _names.add(name);
+        _values.add(String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Returns the number of stats.
+     */
+    public int size() {
+        return _names.size();
+    }
+
+    /**
+     * Returns the name of the stat with the given index.
+     */
+    public String getName(int index) {
+        return _names.get(index);
+    }
+
+    /**
+     * Returns the value of the stat with the given index.
+     */
+    public String getValue(int index) {
+        return _values.get(index);
+    }
+
+    /**
+     * Returns the stat with the given index as it is displayed.
+     */
+    public String toString(int index) {
+        return _names.get(index) + ": " + _values.get(index);
+    }
+}
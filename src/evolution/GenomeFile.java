@@ -0,0 +1,100 @@
+package evolution;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the weights of trained neural networks as text so that they
+ * can be kept after training and loaded again later. Each line holds one genome:
+ * the rows and columns of syn0 followed by its weights, then the same for syn1.
+ * Lines starting with # are comments.
+ */
+public class GenomeFile {
+
+    /**
+     * Writes the given networks to the file at the given path, one per line.
+     */
+    public static void write(Path path, List<NeuralNetwork> networks) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("# syn0 rows cols weights... syn1 rows cols weights...");
+            writer.newLine();
+            for (NeuralNetwork nn: networks) {
+                StringBuilder line = new StringBuilder();
+                GenomeFile.append(line, nn.getSyn0());
+                line.append(' ');
+                GenomeFile.append(line, nn.getSyn1());
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads all of the networks from the file at the given path. The weights are
+     * used exactly as saved without being mutated. Throws an IOException naming
+     * the line of any genome that cannot be parsed, whose matrices do not fit a
+     * network, or that is followed by more tokens.
+     */
+    public static List<NeuralNetwork> read(Path path) throws IOException {
+        List<NeuralNetwork> networks = new ArrayList<NeuralNetwork>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                try {
+                    int[] position = {0};
+                    double[][] syn0 = GenomeFile.parse(tokens, position);
+                    double[][] syn1 = GenomeFile.parse(tokens, position);
+                    if (position[0] != tokens.length) {
+                        throw new IllegalArgumentException("unexpected tokens after the genome");
+                    }
+                    networks.add(NeuralNetwork.withWeights(syn0, syn1));
+                }
+                catch (RuntimeException e) {
+                    throw new IOException(path + ":" + lineNumber + ": malformed genome", e);
+                }
+            }
+        }
+        return networks;
+    }
+
+    /**
+     * Appends the dimensions and then the weights of the matrix to the line.
+     */
+    private static void append(StringBuilder line, double[][] weights) {
+        line.append(weights.length).append(' ').append(weights[0].length);
+        for (double[] row: weights) {
+            for (double weight: row) {
+                line.append(' ').append(weight);
+            }
+        }
+    }
+
+    /**
+     * Parses one matrix from the tokens of a line starting at the given position
+     * and moves the position past it.
+     */
+    private static double[][] parse(String[] tokens, int[] position) {
+        int rows = Integer.parseInt(tokens[position[0]++]);
+        int cols = Integer.parseInt(tokens[position[0]++]);
+        double[][] weights = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                weights[i][j] = Double.parseDouble(tokens[position[0]++]);
+            }
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,38 @@
+package evolution;
+
+import java.util.Random;
+
+/**
+ * Interface for where a HeadlessPopulation keeps the weights of its birds. A store
+ * holds two generations: the current one, which is evaluated, and the next one,
+ * which the children are written into while the current one is still being read
+ * as their parents. Swapping makes the next generation current. The weights of a
+ * genome are indexed in the packed order of NeuralNetwork's getWeights, and every
+ * store draws from the random number generator in the same order as the
+ * NeuralNetwork constructors, so a seeded run is the same whichever store is used.
+ */
+public interface GenomeStore {
+    public int size();
+
+    public int getNumWeights();
+
+    public double getWeight(int genome, int weight);
+
+    public void randomize(int genome, Random random);
+
+    public void setWeights(int genome, double[] weights);
+
+    public void createRandom(int child, Random random);
+
+    public void createChild(int parent, int child, Random random, double rate, double change);
+
+    public void swap();
+
+    public NeuralNetwork getNetwork(int genome);
+
+    public Agent getAgent(int genome, boolean strict);
+
+    public long getBytesPerBird();
+
+    public String getName();
+}
@@ -0,0 +1,849 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Headless version of the Population class used by the command line trainer.
+ * Instead of moving all of the birds together one tick at a time, it runs each
+ * bird's full game with a Simulation, split across the threads of an executor,
+ * since the birds of a generation never affect each other, or with each game as
+ * its own episode on an EpisodeScheduler. Selection and reproduction follow the
+ * same rules as the Population class, but all randomness comes from a single
+ * seeded random number generator so that a run can be repeated.
+ * Alternatively an Optimizer can create each generation from the packed weights
+ * and fitness of the previous one instead. The weights are kept in a GenomeStore,
+ * either on the heap or off it. With Speciation the elites are shared out between
+ * species of similar genomes instead of all going to the best birds.
+ */
+public class HeadlessPopulation {
+    private GenomeStore _genomes;
+    private int[] _fitness;
+    private Config _config;
+    private Random _random;
+    private int _generation, _lastAvgFit, _lastBestFit, _bestFitEver;
+    private NeuralNetwork _bestEver;
+    private FitnessStats _lastStats;
+    private DiversityIndex.Dedupe _dedupe;
+    private DiversityIndex _diversity;
+    // index of the generation before the current one, updated in place for the next generation
+    private DiversityIndex _previousDiversity;
+    private int _numEvaluated;
+    private int _tableResolution;
+    private DecisionTable[] _tables;
+    private AdaptiveMutation _mutation;
+    // with the 1/5th success rule, the networks of the elites the current generation was created from, their
+    // fitness flown again on the current generation's courses and the index of each bird's parent among them,
+    // -1 for random birds, so every child is compared with its parent on the same courses
+    private NeuralNetwork[] _parents;
+    private int[] _parentFitness, _parentOf;
+    private double _lastSuccessRate;
+    private Optimizer _optimizer;
+    // with an optimizer, the outcome of each bird's last game and how far it missed the gap on average
+    private Simulation.Outcome[] _outcomes;
+    private double[] _misses;
+    private int _courseRuns, _courseRunsSkipped, _birdsStopped;
+    // buffers of the evaluation, sized once for the population: the scores of every bird on every course,
+    // bird after bird, the number of courses each bird has flown, the upper bound each stopped bird was
+    // stopped with, whether each bird is still running, the birds of the current course and the lower
+    // bounds of the birds while racing
+    private int[] _scores, _numFlown, _stoppedBound, _batch, _lowerBounds;
+    private boolean[] _running;
+    private int _numCourses;
+    // fitness of the birds that flew every course, for the stats of the generation
+    private int[] _measuredFitness;
+    private Speciation _speciation;
+    // species of each bird's parent in the previous generation, -1 for random birds
+    private int[] _parentSpecies;
+
+    /**
+     * Constructor takes the config, which gives the number of birds in each
+     * generation, the size of their networks and how they are selected and
+     * mutated, and the random number generator used for the initial weights and
+     * all mutations. Everything else is left at the defaults of Settings.
+     */
+    public HeadlessPopulation(Config config, Random random) {
+        this(config, random, new Settings());
+    }
+
+    /**
+     * Same as the previous constructor but also takes the settings for duplicate
+     * genomes, decision tables, mutation, the optimizer, the genome store and
+     * speciation. Throws an IllegalArgumentException if the settings have both an
+     * optimizer and speciation, since the optimizer does its own selection.
+     */
+    public HeadlessPopulation(Config config, Random random, Settings settings) {
+        if (settings._optimizer != null && settings._speciation != null) {
+            throw new IllegalArgumentException("Speciation cannot be used with an optimizer");
+        }
+        int size = config.getPopulationSize();
+        _genomes = settings._genomes != null ? settings._genomes : new HeapGenomeStore(config);
+        _fitness = new int[size];
+        _config = config;
+        _random = random;
+        _dedupe = settings._dedupe;
+        _tableResolution = settings._tableResolution;
+        _tables = new DecisionTable[size];
+        _mutation = settings._mutation != null ? settings._mutation
+                : new AdaptiveMutation(AdaptiveMutation.Mode.FIXED, config);
+        _parents = new NeuralNetwork[0];
+        _parentFitness = new int[0];
+        _parentOf = new int[size];
+        Arrays.fill(_parentOf, -1);
+        _optimizer = settings._optimizer;
+        _speciation = settings._speciation;
+        _parentSpecies = new int[size];
+        Arrays.fill(_parentSpecies, -1);
+        _scores = new int[0];
+        _numFlown = new int[size];
+        _stoppedBound = new int[size];
+        _batch = new int[size];
+        _lowerBounds = new int[size];
+        _running = new boolean[size];
+        _measuredFitness = new int[size];
+
+        if (_optimizer != null) {
+            _outcomes = new Simulation.Outcome[size];
+            for (int i = 0; i < size; i++) {
+                _outcomes[i] = new Simulation.Outcome();
+            }
+            _misses = new double[size];
+            this.setGenomes(_optimizer.ask());
+        }
+        else {
+            for (int i = 0; i < size; i++) {
+                _genomes.randomize(i, _random);
+            }
+        }
+        this.indexDiversity();
+        this.speciate();
+
+        _generation = 1;
+    }
+
+    /**
+     * Builds the diversity index of the current generation. If deduplication is
+     * on, the duplicate genomes are replaced with random ones and the index is
+     * built again. The index of the generation before the last one is updated in
+     * place, so the index of the last generation can still be read until the next
+     * generation begins.
+     */
+    private void indexDiversity() {
+        DiversityIndex previous = _diversity;
+        if (_previousDiversity != null) {
+            _previousDiversity.update(_genomes, _random);
+            _diversity = _previousDiversity;
+        }
+        else {
+            _diversity = new DiversityIndex(_genomes, _random);
+        }
+        _previousDiversity = previous;
+        if (_dedupe != DiversityIndex.Dedupe.OFF && _optimizer == null) {
+            boolean replaced = false;
+            for (int i = 0; i < _genomes.size(); i++) {
+                if (_diversity.isDuplicate(i, _dedupe)) {
+                    _genomes.randomize(i, _random);
+                    _parentOf[i] = -1;
+                    _parentSpecies[i] = -1;
+                    replaced = true;
+                }
+            }
+            if (replaced) {
+                _diversity.update(_genomes, _random);
+            }
+        }
+    }
+
+    /**
+     * Assigns the birds of the current generation to species if speciation is on,
+     * starting from the species of their parents.
+     */
+    private void speciate() {
+        if (_speciation != null) {
+            _speciation.assign(_genomes, _parentSpecies);
+        }
+    }
+
+    /**
+     * Replaces the weights of every bird with the given packed weights.
+     */
+    private void setGenomes(double[][] genomes) {
+        for (int i = 0; i < _genomes.size(); i++) {
+            _genomes.setWeights(i, genomes[i]);
+        }
+    }
+
+    /**
+     * Runs the game for every bird in the current generation using the given
+     * simulation and stores their fitness. Returns the total number of ticks simulated.
+     */
+    public long evaluate(Simulation simulation, ExecutorService executor, int numThreads)
+            throws InterruptedException {
+        return this.evaluate(new Simulation[] {simulation}, new CourseAggregate(CourseAggregate.Kind.MEAN, 0), 0,
+                executor, numThreads);
+    }
+
+    /**
+     * Runs the game for every bird in the current generation on each of the given
+     * simulations and stores their fitness, the combination of their ticks survived
+     * on every course given by the aggregate. The courses are flown one at a time,
+     * with the birds split into one chunk per thread of the executor, or all run on
+     * the calling thread if the executor is null. With racing,
+     * after each course the birds whose fitness can no longer reach that of the
+     * elites are not run on the remaining courses. Racing takes the number of
+     * standard errors used for the bounds of the birds' fitness (see CourseAggregate),
+     * infinity for exact bounds or 0 for no racing. The fitness of a bird that was
+     * stopped is the aggregate of the courses it did fly but never more than the
+     * bound it was stopped with, so with exact bounds racing never changes which
+     * birds are the elites. That fitness is only used for selection: the stats of
+     * the generation only count the birds that flew every course. Racing assumes the elites are the birds with the highest
+     * fitness of the whole generation, so it throws an IllegalArgumentException with
+     * an optimizer or speciation, which choose the next generation another way and
+     * would see the partial fitness of the stopped birds. Birds with exactly the same
+     * weights as an earlier bird
+     * are not run since they would fly exactly the same games; they get the earlier
+     * bird's fitness instead. Returns the total number of ticks simulated.
+     */
+    public long evaluate(Simulation[] simulations, CourseAggregate aggregate, double racing, ExecutorService executor,
+            int numThreads) throws InterruptedException {
+        return this.evaluate(simulations, aggregate, racing, executor, numThreads, null);
+    }
+
+    /**
+     * Same as the previous method but runs every bird's game on each course as
+     * its own episode on the given scheduler instead of in chunks on an executor.
+     */
+    public long evaluate(Simulation[] simulations, CourseAggregate aggregate, double racing, EpisodeScheduler scheduler)
+            throws InterruptedException {
+        return this.evaluate(simulations, aggregate, racing, null, 0, scheduler);
+    }
+
+    /**
+     * Helper method shared by the public evaluate methods. The courses are run
+     * on the scheduler if it is not null and on the executor otherwise.
+     */
+    private long evaluate(Simulation[] simulations, CourseAggregate aggregate, double racing, ExecutorService executor,
+            int numThreads, EpisodeScheduler scheduler) throws InterruptedException {
+        if (racing > 0 && simulations.length > 1 && (_optimizer != null || _speciation != null)) {
+            throw new IllegalArgumentException("Racing only works with elite selection over the whole generation");
+        }
+        int size = _genomes.size();
+        _numCourses = simulations.length;
+        if (_scores.length != size * _numCourses) {
+            _scores = new int[size * _numCourses];
+        }
+        Arrays.fill(_numFlown, 0);
+        Arrays.fill(_stoppedBound, Integer.MAX_VALUE);
+        if (_misses != null) {
+            Arrays.fill(_misses, 0);
+        }
+        for (int i = 0; i < size; i++) {
+            _running[i] = _diversity.getDuplicateOf(i) == -1;
+        }
+
+        long totalTicks = 0;
+        _courseRuns = 0;
+        for (int course = 0; course < simulations.length; course++) {
+            int batchSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (_running[i]) {
+                    _batch[batchSize++] = i;
+                    _numFlown[i]++;
+                }
+            }
+            if (scheduler != null) {
+                totalTicks += this.runCourse(batchSize, simulations[course], course, scheduler);
+            }
+            else {
+                totalTicks += this.runCourse(batchSize, simulations[course], course, executor, numThreads);
+            }
+            _courseRuns += batchSize;
+
+            if (racing > 0 && course + 1 < simulations.length) {
+                this.race(aggregate, simulations[course].getMaxTicks(), racing);
+            }
+        }
+
+        _numEvaluated = 0;
+        _birdsStopped = 0;
+        for (int i = 0; i < size; i++) {
+            if (_diversity.getDuplicateOf(i) == -1) {
+                _fitness[i] = Math.min(aggregate.getValue(_scores, i * _numCourses, _numFlown[i]), _stoppedBound[i]);
+                _numEvaluated++;
+                if (_numFlown[i] < _numCourses) {
+                    _birdsStopped++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int original = _diversity.getDuplicateOf(i);
+            if (original != -1) {
+                _fitness[i] = _fitness[original];
+            }
+            if (_misses != null) {
+                _misses[i] = original != -1 ? _misses[original] : _misses[i] / _numCourses;
+            }
+        }
+        _courseRunsSkipped = _numEvaluated * simulations.length - _courseRuns;
+        return totalTicks + this.evaluateParents(simulations, aggregate);
+    }
+
+    /**
+     * Flies the parents of the current generation again on the given simulations,
+     * on the calling thread since there are only as many as there are elites, and
+     * stores their fitness. Returns the total number of ticks simulated.
+     */
+    private long evaluateParents(Simulation[] simulations, CourseAggregate aggregate) {
+        long totalTicks = 0;
+        int[] scores = new int[simulations.length];
+        for (int k = 0; k < _parents.length; k++) {
+            boolean strict = simulations[0].getPhysics() == Simulation.Physics.FIXED;
+            // flown the same way as the children, through a table of its own if tables are on
+            Agent agent = _tableResolution > 0 ? new DecisionTable(_parents[k], _tableResolution, strict)
+                    : new NetworkAgent(_parents[k], strict);
+            for (int course = 0; course < simulations.length; course++) {
+                scores[course] = simulations[course].run(agent);
+                totalTicks += scores[course] + 1;
+            }
+            _parentFitness[k] = aggregate.getValue(scores, 0, simulations.length);
+        }
+        return totalTicks;
+    }
+
+    /**
+     * Runs the first given number of birds of the batch on one course, split into
+     * one chunk per thread of the executor, and stores their ticks survived in the
+     * scores of that course. Runs them all on the calling thread if the executor
+     * is null. Returns the total number of ticks simulated.
+     */
+    private long runCourse(int batchSize, final Simulation simulation, final int course, ExecutorService executor,
+            int numThreads) throws InterruptedException {
+        if (executor == null) {
+            return this.runBatch(0, batchSize, simulation, course);
+        }
+        List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+        int chunk = (batchSize + numThreads - 1) / numThreads;
+        for (int start = 0; start < batchSize; start += chunk) {
+            final int from = start;
+            final int to = Math.min(start + chunk, batchSize);
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return HeadlessPopulation.this.runBatch(from, to, simulation, course);
+                }
+            });
+        }
+
+        long totalTicks = 0;
+        try {
+            for (Future<Long> result: executor.invokeAll(tasks)) {
+                totalTicks += result.get();
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Bird evaluation failed", e.getCause());
+        }
+        return totalTicks;
+    }
+
+    /**
+     * Runs the birds of the batch from the first index up to the second on one
+     * course and stores their ticks survived. Returns the total number of ticks simulated.
+     */
+    private long runBatch(int from, int to, Simulation simulation, int course) {
+        long ticks = 0;
+        for (int b = from; b < to; b++) {
+            int i = _batch[b];
+            Simulation.Outcome outcome = _outcomes != null ? _outcomes[i] : null;
+            int score = this.run(i, simulation, outcome);
+            _scores[i * _numCourses + course] = score;
+            if (outcome != null) {
+                _misses[i] += outcome.getMiss();
+            }
+            ticks += score + 1;
+        }
+        return ticks;
+    }
+
+    /**
+     * Runs the first given number of birds of the batch on one course, each as
+     * its own episode on the scheduler, and stores their ticks survived in the
+     * scores of that course. Returns the total number of ticks simulated.
+     */
+    private long runCourse(int batchSize, final Simulation simulation, final int course, EpisodeScheduler scheduler)
+            throws InterruptedException {
+        return scheduler.runEpisodes(batchSize, new EpisodeScheduler.Episode() {
+            @Override
+            public long run(int index) {
+                return HeadlessPopulation.this.runBatch(index, index + 1, simulation, course);
+            }
+        });
+    }
+
+    /**
+     * Stops running the birds that can no longer become elites: those whose
+     * highest possible fitness is below the lowest possible fitness of the bird
+     * that is currently the last elite. Birds that have already stopped still
+     * count towards the elites with the fitness they stopped with. Records the
+     * upper bound each stopped bird was stopped with.
+     */
+    private void race(CourseAggregate aggregate, int maxTicks, double confidence) {
+        int numElites = Math.max(1, (int) (_genomes.size() * _config.getSelectionRate()));
+        int count = 0;
+        for (int i = 0; i < _genomes.size(); i++) {
+            int offset = i * _numCourses;
+            if (_running[i]) {
+                _lowerBounds[count++] = aggregate.getLowerBound(_scores, offset, _numFlown[i], _numCourses, maxTicks,
+                        confidence);
+            }
+            else if (_numFlown[i] > 0) {
+                _lowerBounds[count++] = Math.min(aggregate.getValue(_scores, offset, _numFlown[i]), _stoppedBound[i]);
+            }
+        }
+        if (count < numElites) {
+            return;
+        }
+        int threshold = Selection.kthSmallest(_lowerBounds, count, count - numElites);
+
+        for (int i = 0; i < _genomes.size(); i++) {
+            if (_running[i]) {
+                int upperBound = aggregate.getUpperBound(_scores, i * _numCourses, _numFlown[i], _numCourses, maxTicks,
+                        confidence);
+                if (upperBound < threshold) {
+                    _running[i] = false;
+                    _stoppedBound[i] = upperBound;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the game for the bird with the given index and returns its fitness,
+     * using the bird's decision table if tables are on. Fills in the outcome if
+     * one is given.
+     */
+    private int run(int index, Simulation simulation, Simulation.Outcome outcome) {
+        if (_tableResolution == 0) {
+            return simulation.run(_genomes.getAgent(index, simulation.getPhysics() == Simulation.Physics.FIXED),
+                    outcome);
+        }
+        if (_tables[index] == null) {
+            _tables[index] = new DecisionTable(_genomes.getNetwork(index), _tableResolution,
+                    simulation.getPhysics() == Simulation.Physics.FIXED);
+        }
+        return simulation.run(_tables[index], outcome);
+    }
+
+    /**
+     * Returns the indices of the given number of birds with the highest fitness
+     * in the generation that was just evaluated, ordered from greatest to least.
+     */
+    public int[] getTop(int count) {
+        return Selection.top(_fitness, count);
+    }
+
+    /**
+     * Returns the network of the bird with the given index, which is a copy if
+     * the weights are not kept on the heap.
+     */
+    public NeuralNetwork getNetwork(int index) {
+        return _genomes.getNetwork(index);
+    }
+
+    /**
+     * Returns the fitness of the bird with the given index.
+     */
+    public int getFitness(int index) {
+        return _fitness[index];
+    }
+
+    /**
+     * Begins the new generation. Updates the stats based on the generation that
+     * was just evaluated, adapts the mutations and retrieves the elite birds. If
+     * any elite birds were selected, their weights are passed on to the new birds.
+     * If not, new birds with random weights are generated. If there is an
+     * optimizer, it creates the new birds instead.
+     */
+    public void reset() {
+        int numBestBirds = (int) (_genomes.size() * _config.getSelectionRate());
+        int[] top = Selection.top(_fitness, Math.max(1, numBestBirds));
+
+        this.updateStats(top[0]);
+        if (_optimizer != null) {
+            _optimizer.tell(_fitness, _misses);
+            this.setGenomes(_optimizer.ask());
+            Arrays.fill(_fitness, 0);
+            Arrays.fill(_tables, null);
+            this.indexDiversity();
+            return;
+        }
+        int children = this.countChildren();
+        _lastSuccessRate = children > 0 ? (double) this.countSuccesses() / children : 0;
+        _mutation.update(_lastSuccessRate, children, _lastBestFit);
+
+        ArrayList<Integer> bestBirds = _speciation != null ? this.getBestBirds(numBestBirds)
+                : this.getBestBirds(top, numBestBirds);
+        boolean compareParents = _mutation.getMode() == AdaptiveMutation.Mode.ONE_FIFTH;
+        if (compareParents) {
+            _parents = new NeuralNetwork[bestBirds.size()];
+            _parentFitness = new int[bestBirds.size()];
+            for (int k = 0; k < _parents.length; k++) {
+                _parents[k] = _genomes.getNetwork(bestBirds.get(k));
+            }
+        }
+
+        for (int i = 0; i < _genomes.size(); i++) {
+            if (bestBirds.size() != 0) {
+                int selected = bestBirds.get(i % bestBirds.size());
+                _genomes.createChild(selected, i, _random, _mutation.getRate(), _mutation.getChange());
+                _parentOf[i] = compareParents ? i % bestBirds.size() : -1;
+                _parentSpecies[i] = _speciation != null ? _speciation.getSpecies(selected) : -1;
+            }
+            else {
+                _genomes.createRandom(i, _random);
+                _parentOf[i] = -1;
+                _parentSpecies[i] = -1;
+            }
+            _fitness[i] = 0;
+            _tables[i] = null;
+        }
+        _genomes.swap();
+        this.indexDiversity();
+        this.speciate();
+    }
+
+    /**
+     * Returns the indices of the best performing birds whose weights should get
+     * passed on to the next generation. Takes the indices of the best birds ordered
+     * from greatest to least fitness and picks the first few that made it past the
+     * minimum fitness.
+     */
+    private ArrayList<Integer> getBestBirds(int[] top, int numBestBirds) {
+        ArrayList<Integer> bestBirds = new ArrayList<Integer>();
+
+        for (int i = 0; i < numBestBirds; i++) {
+            if (_fitness[top[i]] > Constants.MIN_FITNESS) {
+                bestBirds.add(top[i]);
+            }
+        }
+
+        return bestBirds;
+    }
+
+    /**
+     * Returns the indices of the elites selected by the speciation, each species
+     * getting a share of them that depends on the mean fitness of its birds.
+     */
+    private ArrayList<Integer> getBestBirds(int numBestBirds) {
+        ArrayList<Integer> bestBirds = new ArrayList<Integer>();
+        for (int index: _speciation.selectElites(_fitness, numBestBirds)) {
+            bestBirds.add(index);
+        }
+        return bestBirds;
+    }
+
+    /**
+     * Returns the number of birds of the current generation that were created
+     * from a parent that was flown again on the same courses, leaving out the
+     * birds stopped by racing, whose fitness is only a bound.
+     */
+    private int countChildren() {
+        int children = 0;
+        for (int i = 0; i < _genomes.size(); i++) {
+            if (this.isComparedChild(i)) {
+                children++;
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Returns the number of the children counted by countChildren that beat the
+     * fitness of their parent on the same courses.
+     */
+    private int countSuccesses() {
+        int successes = 0;
+        for (int i = 0; i < _genomes.size(); i++) {
+            if (this.isComparedChild(i) && _fitness[i] > _parentFitness[_parentOf[i]]) {
+                successes++;
+            }
+        }
+        return successes;
+    }
+
+    /**
+     * Returns whether the bird with the given index is compared with its parent.
+     */
+    private boolean isComparedChild(int index) {
+        int original = _diversity.getDuplicateOf(index);
+        return _parentOf[index] >= 0 && _numFlown[original != -1 ? original : index] == _numCourses;
+    }
+
+    /**
+     * Called at the end of each generation to update the stats for the generation
+     * from the birds that flew every course. Takes the index of the best bird of
+     * the generation.
+     */
+    private void updateStats(int best) {
+        // birds stopped by racing only have a bound on their fitness, so they are left out
+        int count = 0;
+        for (int i = 0; i < _genomes.size(); i++) {
+            int original = _diversity.getDuplicateOf(i);
+            if (_numFlown[original != -1 ? original : i] == _numCourses) {
+                _measuredFitness[count++] = _fitness[i];
+            }
+        }
+        _lastStats = new FitnessStats(_measuredFitness, count);
+
+        _lastBestFit = _lastStats.getMax();
+        if (_lastBestFit > _bestFitEver || _bestEver == null) {
+            _bestFitEver = _lastBestFit;
+            _bestEver = _genomes.getNetwork(best);
+        }
+        _lastAvgFit = (int) _lastStats.getMean();
+
+        _generation++;
+    }
+
+    /**
+     * Returns the number of the current generation.
+     */
+    public int getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Returns the average fitness of the last generation.
+     */
+    public int getLastAvgFit() {
+        return _lastAvgFit;
+    }
+
+    /**
+     * Returns the fitness statistics of the last generation.
+     */
+    public FitnessStats getLastStats() {
+        return _lastStats;
+    }
+
+    /**
+     * Returns the best fitness of the last generation.
+     */
+    public int getLastBestFit() {
+        return _lastBestFit;
+    }
+
+    /**
+     * Returns the best fitness of any generation so far.
+     */
+    public int getBestFitEver() {
+        return _bestFitEver;
+    }
+
+    /**
+     * Returns the diversity index of the current generation. The index is reused
+     * for the generation after next, so it should not be kept any longer.
+     */
+    public DiversityIndex getDiversity() {
+        return _diversity;
+    }
+
+    /**
+     * Returns the number of birds that were actually run in the last evaluation,
+     * the rest being exact duplicates.
+     */
+    public int getNumEvaluated() {
+        return _numEvaluated;
+    }
+
+    /**
+     * Returns the fraction of the decision table lookups of the current generation
+     * that found their decision already in the table, or 0 if tables are off.
+     */
+    public double getTableHitRate() {
+        long lookups = 0, hits = 0;
+        for (DecisionTable table: _tables) {
+            if (table != null) {
+                lookups += table.getLookups();
+                hits += table.getHits();
+            }
+        }
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * Returns the fraction of the checked decision table lookups of the current
+     * generation that agreed with the network, or 1 if none were checked.
+     */
+    public double getTableAgreement() {
+        long audits = 0, agreements = 0;
+        for (DecisionTable table: _tables) {
+            if (table != null) {
+                audits += table.getAudits();
+                agreements += table.getAgreements();
+            }
+        }
+        return audits > 0 ? (double) agreements / audits : 1;
+    }
+
+    /**
+     * Returns the number of games that were run in the last evaluation, one for
+     * every course every evaluated bird flew.
+     */
+    public int getCourseRuns() {
+        return _courseRuns;
+    }
+
+    /**
+     * Returns the number of games that racing skipped in the last evaluation.
+     */
+    public int getCourseRunsSkipped() {
+        return _courseRunsSkipped;
+    }
+
+    /**
+     * Returns the number of birds that racing stopped before they had flown every
+     * course in the last evaluation, which are left out of its stats.
+     */
+    public int getBirdsStopped() {
+        return _birdsStopped;
+    }
+
+    /**
+     * Returns the fraction of the birds of the last generation created from a
+     * parent that beat the fitness of their parent flown again on the same
+     * courses, or 0 if there were none, which is always the case unless the
+     * mutations follow the 1/5th success rule.
+     */
+    public double getLastSuccessRate() {
+        return _lastSuccessRate;
+    }
+
+    /**
+     * Returns the adaptive mutation used to create each generation.
+     */
+    public AdaptiveMutation getMutation() {
+        return _mutation;
+    }
+
+    /**
+     * Returns the network of the best bird of any generation so far.
+     */
+    public NeuralNetwork getBestEver() {
+        return _bestEver;
+    }
+
+    /**
+     * Returns the speciation of the current generation, or null if it is off.
+     */
+    public Speciation getSpeciation() {
+        return _speciation;
+    }
+
+    /**
+     * Returns the store the weights of the birds are kept in.
+     */
+    public GenomeStore getGenomeStore() {
+        return _genomes;
+    }
+
+    /**
+     * Everything about how a population is evaluated and reproduced besides its
+     * config and random number generator, built up from the defaults with the with
+     * methods: no replacement of duplicate genomes, no decision tables, fixed
+     * mutations, elite selection instead of an optimizer, the weights on the heap
+     * and no speciation. Settings never change; every with method returns new
+     * settings with one value replaced, just like Config.
+     */
+    public static class Settings {
+        private DiversityIndex.Dedupe _dedupe = DiversityIndex.Dedupe.OFF;
+        private int _tableResolution;
+        private AdaptiveMutation _mutation;
+        private Optimizer _optimizer;
+        private GenomeStore _genomes;
+        private Speciation _speciation;
+
+        /**
+         * Returns a copy of these settings.
+         */
+        private Settings copy() {
+            Settings copy = new Settings();
+            copy._dedupe = _dedupe;
+            copy._tableResolution = _tableResolution;
+            copy._mutation = _mutation;
+            copy._optimizer = _optimizer;
+            copy._genomes = _genomes;
+            copy._speciation = _speciation;
+            return copy;
+        }
+
+        /**
+         * Returns settings that replace the given kind of duplicate genomes with
+         * random ones at the start of every generation. Duplicates are never
+         * replaced when there is an optimizer since it has to get back the fitness
+         * of the genomes it asked for.
+         */
+        public Settings withDedupe(DiversityIndex.Dedupe dedupe) {
+            Settings settings = this.copy();
+            settings._dedupe = dedupe;
+            return settings;
+        }
+
+        /**
+         * Returns settings that memoize the birds' decisions in decision tables of
+         * the given resolution, or always run the networks if it is 0. Each bird's
+         * table is created the first time it is evaluated.
+         */
+        public Settings withDecisionTables(int resolution) {
+            Settings settings = this.copy();
+            settings._tableResolution = resolution;
+            return settings;
+        }
+
+        /**
+         * Returns settings that adapt the mutations used to create each new
+         * generation with the given adaptive mutation.
+         */
+        public Settings withMutation(AdaptiveMutation mutation) {
+            Settings settings = this.copy();
+            settings._mutation = mutation;
+            return settings;
+        }
+
+        /**
+         * Returns settings that create each generation with the given optimizer,
+         * or with elite selection and mutation if it is null.
+         */
+        public Settings withOptimizer(Optimizer optimizer) {
+            Settings settings = this.copy();
+            settings._optimizer = optimizer;
+            return settings;
+        }
+
+        /**
+         * Returns settings that keep the weights of the birds in the given store,
+         * which must be the size of the config's population.
+         */
+        public Settings withGenomeStore(GenomeStore genomes) {
+            Settings settings = this.copy();
+            settings._genomes = genomes;
+            return settings;
+        }
+
+        /**
+         * Returns settings that select the elites with the given speciation, or by
+         * fitness alone if it is null.
+         */
+        public Settings withSpeciation(Speciation speciation) {
+            Settings settings = this.copy();
+            settings._speciation = speciation;
+            return settings;
+        }
+    }
+}
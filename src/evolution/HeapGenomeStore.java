@@ -0,0 +1,157 @@
+package evolution;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Genome store that keeps every bird's weights in a NeuralNetwork object on the
+ * heap, which is how the birds have always been stored. Every child is a new
+ * network with its own arrays, so each generation leaves the whole previous one
+ * behind as garbage.
+ */
+public class HeapGenomeStore implements GenomeStore {
+    // object header and array header sizes of a 64 bit JVM with compressed references
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private NeuralNetwork[] _current, _next;
+    private Config _config;
+    private int _numWeights;
+
+    /**
+     * Constructor takes the config, which gives the number of birds and the size
+     * of their networks. The birds have no weights until they are randomized or set.
+     */
+    public HeapGenomeStore(Config config) {
+        _current = new NeuralNetwork[config.getPopulationSize()];
+        _next = new NeuralNetwork[config.getPopulationSize()];
+        _config = config;
+        _numWeights = NeuralNetwork.getNumWeights(config);
+    }
+
+    /**
+     * Returns the number of birds in a generation.
+     */
+    @Override
+    public int size() {
+        return _current.length;
+    }
+
+    /**
+     * Returns the number of weights of each bird.
+     */
+    @Override
+    public int getNumWeights() {
+        return _numWeights;
+    }
+
+    /**
+     * Returns the weight of the current generation's genome at the given index
+     * of its packed weights.
+     */
+    @Override
+    public double getWeight(int genome, int weight) {
+        double[][] syn0 = _current[genome].getSyn0();
+        int syn0Weights = syn0.length * Constants.INPUT_NODES;
+        if (weight < syn0Weights) {
+            return syn0[weight / Constants.INPUT_NODES][weight % Constants.INPUT_NODES];
+        }
+        weight -= syn0Weights;
+        return _current[genome].getSyn1()[weight / syn0.length][weight % syn0.length];
+    }
+
+    /**
+     * Gives the genome of the current generation new random weights.
+     */
+    @Override
+    public void randomize(int genome, Random random) {
+        _current[genome] = new NeuralNetwork(_config, random);
+    }
+
+    /**
+     * Gives the genome of the current generation exactly the given packed weights.
+     */
+    @Override
+    public void setWeights(int genome, double[] weights) {
+        _current[genome] = NeuralNetwork.fromWeights(weights);
+    }
+
+    /**
+     * Gives the child in the next generation random weights.
+     */
+    @Override
+    public void createRandom(int child, Random random) {
+        _next[child] = new NeuralNetwork(_config, random);
+    }
+
+    /**
+     * Makes the child in the next generation a mutated copy of the parent in the
+     * current generation.
+     */
+    @Override
+    public void createChild(int parent, int child, Random random, double rate, double change) {
+        _next[child] = new NeuralNetwork(_current[parent].getSyn0(), _current[parent].getSyn1(), random, rate, change);
+    }
+
+    /**
+     * Makes the next generation the current one. The networks of the old current
+     * generation are dropped so they can be garbage collected.
+     */
+    @Override
+    public void swap() {
+        NeuralNetwork[] current = _current;
+        _current = _next;
+        _next = current;
+        Arrays.fill(_next, null);
+    }
+
+    /**
+     * Returns the network of the genome, which is not copied.
+     */
+    @Override
+    public NeuralNetwork getNetwork(int genome) {
+        return _current[genome];
+    }
+
+    /**
+     * Returns an agent that flies the genome's network.
+     */
+    @Override
+    public Agent getAgent(int genome, boolean strict) {
+        return new NetworkAgent(_current[genome], strict);
+    }
+
+    /**
+     * Returns an estimate of the heap taken by each bird's network: the network
+     * object, its two outer arrays and one array per row. The estimate assumes a
+     * 64 bit JVM with compressed references, and every generation allocates this
+     * much again.
+     */
+    @Override
+    public long getBytesPerBird() {
+        int hiddenNodes = _config.getHiddenNodes();
+        long bytes = HeapGenomeStore.align(OBJECT_HEADER + 2 * REFERENCE);
+        bytes += HeapGenomeStore.align(ARRAY_HEADER + hiddenNodes * REFERENCE);
+        bytes += hiddenNodes * HeapGenomeStore.align(ARRAY_HEADER + Constants.INPUT_NODES * Double.BYTES);
+        bytes += HeapGenomeStore.align(ARRAY_HEADER + Constants.OUTPUT_NODES * REFERENCE);
+        bytes += Constants.OUTPUT_NODES * HeapGenomeStore.align(ARRAY_HEADER + hiddenNodes * Double.BYTES);
+        // the reference to the network in the store's array
+        return bytes + REFERENCE;
+    }
+
+    /**
+     * Rounds the size of an object up to the 8 byte alignment of the heap.
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Returns the name of the store.
+     */
+    @Override
+    public String getName() {
+        return "heap";
+    }
+}
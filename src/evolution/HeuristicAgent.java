@@ -0,0 +1,60 @@
+package evolution;
+
+/**
+ * Baseline agent with a hand written rule instead of a neural network: it jumps
+ * whenever the bird has fallen to within a margin of the bottom of the nearest
+ * gap. Gives trained networks something simple to be compared against.
+ */
+public class HeuristicAgent implements Agent {
+    private double _margin;
+
+    /**
+     * Constructor takes how far above the bottom of the gap the bird jumps.
+     */
+    public HeuristicAgent(double margin) {
+        _margin = margin;
+    }
+
+    /**
+     * Does nothing since the rule keeps no state between games.
+     */
+    @Override
+    public void reset() {
+    }
+
+    /**
+     * Returns whether the bottom of the bird is within the margin of the bottom of the gap.
+     */
+    @Override
+    public boolean jump(double birdY, double pipeY, double pipeX) {
+        return birdY + Constants.BIRD_R > pipeY + Constants.PIPE_GAP - _margin;
+    }
+
+    /**
+     * Returns a description of the rule.
+     */
+    @Override
+    public String getDescription() {
+        return "Heuristic (jumps " + _margin + " pixels above the bottom of the gap)";
+    }
+
+    /**
+     * Creates heuristic agents, taking the margin as an optional argument.
+     */
+    public static class Provider implements AgentProvider {
+        @Override
+        public String getName() {
+            return "heuristic";
+        }
+
+        @Override
+        public String getUsage() {
+            return "heuristic[:margin]";
+        }
+
+        @Override
+        public Agent create(String argument, Simulation.Physics physics) {
+            return new HeuristicAgent(argument == null ? Constants.HEURISTIC_MARGIN : Double.parseDouble(argument));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package evolution;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Agent that jumps according to a neural network, just like a SmartBird. Runs the
+ * network with strict math when it is flown with the fixed point physics so that
+ * the game is bit for bit reproducible. Keeps no state so it can be shared.
+ */
+public class NetworkAgent implements Agent {
+    private NeuralNetwork _nn;
+    private boolean _strict;
+    private String _description;
+
+    /**
+     * Constructor takes the network and whether it is run with forwardPropStrict
+     * or forwardProp.
+     */
+    public NetworkAgent(NeuralNetwork nn, boolean strict) {
+        this(nn, strict, "Neural network");
+    }
+
+    /**
+     * Same as the previous constructor but also takes the description shown for the agent.
+     */
+    public NetworkAgent(NeuralNetwork nn, boolean strict, String description) {
+        _nn = nn;
+        _strict = strict;
+        _description = description;
+    }
+
+    /**
+     * Does nothing since the network keeps no state between games.
+     */
+    @Override
+    public void reset() {
+    }
+
+    /**
+     * Returns whether the network's output for the inputs is above the jump threshold.
+     */
+    @Override
+    public boolean jump(double birdY, double pipeY, double pipeX) {
+        double output = _strict ? _nn.forwardPropStrict(birdY, pipeY, pipeX) : _nn.forwardProp(birdY, pipeY, pipeX);
+        return output >= Constants.JUMP_FREQUENCY;
+    }
+
+    /**
+     * Returns the description of the agent.
+     */
+    @Override
+    public String getDescription() {
+        return _description;
+    }
+
+    /**
+     * Returns the network of the agent.
+     */
+    public NeuralNetwork getNetwork() {
+        return _nn;
+    }
+
+    /**
+     * Creates network agents from the first genome of a genome file.
+     */
+    public static class Provider implements AgentProvider {
+        @Override
+        public String getName() {
+            return "network";
+        }
+
+        @Override
+        public String getUsage() {
+            return "network:genome-file";
+        }
+
+        @Override
+        public Agent create(String argument, Simulation.Physics physics) throws IOException {
+            if (argument == null) {
+                throw new IllegalArgumentException("The network agent needs a genome file");
+            }
+            List<NeuralNetwork> genomes = GenomeFile.read(Paths.get(argument));
+            if (genomes.isEmpty()) {
+                throw new IOException(argument + " has no genomes");
+            }
+            return new NetworkAgent(genomes.get(0), physics == Simulation.Physics.FIXED,
+                    "Neural network from " + argument);
+        }
+    }
+}
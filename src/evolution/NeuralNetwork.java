@@ -1,11 +1,17 @@
 package evolution;
 
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Neural network class that uses inputs from the SmartBird to output a value
  * that allows it to decide whether or not to jump at each timeline step using either
  * randomized weights or weights inherited from a previous generation bird.
  */
 public class NeuralNetwork {
+    // the output node that decides whether the bird jumps
+    private static final int JUMP_OUTPUT = 0;
+
     private double[][] _syn0;
     private double[][] _syn1;
 
@@ -13,8 +19,32 @@ public class NeuralNetwork {
      * Default constructor that creates random weights.
      */
     public NeuralNetwork() {
-        _syn0 = this.randomizeWeights(Constants.HIDDEN_NODES, Constants.INPUT_NODES);
-        _syn1 = this.randomizeWeights(Constants.OUTPUT_NODES, Constants.HIDDEN_NODES);
+        this(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Constructor that creates random weights drawn from the given random number
+     * generator so that headless training runs can be reproduced from a seed.
+     */
+    public NeuralNetwork(Random random) {
+        this(Constants.HIDDEN_NODES, random);
+    }
+
+    /**
+     * Same as the previous constructor but the hidden layer has the number of
+     * nodes given by the config.
+     */
+    public NeuralNetwork(Config config, Random random) {
+        this(config.getHiddenNodes(), random);
+    }
+
+    /**
+     * Helper constructor that creates random weights for a hidden layer with the
+     * given number of nodes.
+     */
+    private NeuralNetwork(int hiddenNodes, Random random) {
+        _syn0 = this.randomizeWeights(hiddenNodes, Constants.INPUT_NODES, random);
+        _syn1 = this.randomizeWeights(Constants.OUTPUT_NODES, hiddenNodes, random);
     }
 
     /**
@@ -22,21 +52,93 @@ public class NeuralNetwork {
      * this birds weights to copies of the previous weights and then mutates them.
      */
     public NeuralNetwork(double[][] syn0, double[][] syn1) {
+        this(syn0, syn1, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Same as the previous constructor but draws the mutations from the given
+     * random number generator. Only the copies are mutated so the parent keeps
+     * its weights no matter how many children it has.
+     */
+    public NeuralNetwork(double[][] syn0, double[][] syn1, Random random) {
+        this(syn0, syn1, random, Constants.MUTATION_RATE, Constants.MUTATION_CHANGE);
+    }
+
+    /**
+     * Same as the previous constructor but mutates with the rate and the maximum
+     * change given by the config.
+     */
+    public NeuralNetwork(Config config, double[][] syn0, double[][] syn1, Random random) {
+        this(syn0, syn1, random, config.getMutationRate(), config.getMutationChange());
+    }
+
+    /**
+     * Same as the previous constructor but takes the mutation rate and the
+     * maximum mutation change to use instead of the constants.
+     */
+    public NeuralNetwork(double[][] syn0, double[][] syn1, Random random, double rate, double change) {
         _syn0 = this.copy(syn0);
         _syn1 = this.copy(syn1);
-        this.mutate(syn0);
-        this.mutate(syn1);
+        this.mutate(_syn0, random, rate, change);
+        this.mutate(_syn1, random, rate, change);
+    }
+
+    /**
+     * Returns a network that uses exactly the given weights without mutating them.
+     * Used when loading a saved genome. Throws an IllegalArgumentException if syn0
+     * does not have a column per input and at least one row, or syn1 does not have
+     * a row per output and a column per row of syn0.
+     */
+    public static NeuralNetwork withWeights(double[][] syn0, double[][] syn1) {
+        if (syn0.length == 0 || syn0[0].length != Constants.INPUT_NODES) {
+            throw new IllegalArgumentException("syn0 must have " + Constants.INPUT_NODES + " columns and at least one row");
+        }
+        if (syn1.length != Constants.OUTPUT_NODES || syn1[0].length != syn0.length) {
+            throw new IllegalArgumentException("syn1 must have " + Constants.OUTPUT_NODES + " rows and "
+                    + syn0.length + " columns");
+        }
+        return new NeuralNetwork(syn0, syn1, null);
+    }
+
+    /**
+     * Returns a network that uses exactly the given packed weights, in the order
+     * they are returned by getWeights, without mutating them. Used by optimizers
+     * that work on packed weights. The number of hidden nodes follows from the
+     * number of weights.
+     */
+    public static NeuralNetwork fromWeights(double[] weights) {
+        int hiddenNodes = weights.length / (Constants.INPUT_NODES + Constants.OUTPUT_NODES);
+        double[][] syn0 = new double[hiddenNodes][Constants.INPUT_NODES];
+        double[][] syn1 = new double[Constants.OUTPUT_NODES][hiddenNodes];
+        int i = 0;
+        for (double[] row: syn0) {
+            System.arraycopy(weights, i, row, 0, row.length);
+            i += row.length;
+        }
+        for (double[] row: syn1) {
+            System.arraycopy(weights, i, row, 0, row.length);
+            i += row.length;
+        }
+        return NeuralNetwork.withWeights(syn0, syn1);
+    }
+
+    /**
+     * Returns the number of weights in a network with the hidden layer given by
+     * the config, the length of its packed weights.
+     */
+    public static int getNumWeights(Config config) {
+        return config.getHiddenNodes() * (Constants.INPUT_NODES + Constants.OUTPUT_NODES);
     }
 
     /**
      * Takes the dimensions of a matrix and returns a 2D array that represents
      * the resulting matrix filled with random weights.
      */
-    private double[][] randomizeWeights(int rows, int cols) {
+    private double[][] randomizeWeights(int rows, int cols, Random random) {
         double[][] weights = new double[rows][cols];
         for (int i = 0; i < weights.length; i++) {
             for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] = Math.random() * (Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN) + Constants.WEIGHTS_MIN;
+                weights[i][j] = random.nextDouble() * (Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN) + Constants.WEIGHTS_MIN;
             }
         }
 
@@ -49,72 +151,56 @@ public class NeuralNetwork {
      * forward propagation process and returns the output.
      */
     public double forwardProp(double birdY, double pipeY, double pipeX) {
-        double[] inputs = this.normalizeInputs(birdY, pipeY, pipeX);
-
-        double[] hiddenLayer = this.sigmoid(this.dotProduct(_syn0, inputs));
-        double[] output = this.sigmoid(this.dotProduct(_syn1, hiddenLayer));
-
-        if (output == null) {
-            output = new double[Constants.OUTPUT_NODES];
-            output[0] = 0;
-        }
+        return this.forwardProp(birdY, pipeY, pipeX, false);
+    }
 
-        return output[0];
+    /**
+     * Same as forwardProp but uses StrictMath for the sigmoid so that the output
+     * is bit for bit the same on every platform. Used by the fixed point physics.
+     */
+    public double forwardPropStrict(double birdY, double pipeY, double pipeX) {
+        return this.forwardProp(birdY, pipeY, pipeX, true);
     }
 
     /**
-     * Takes in the inputs passed from the SmartBird and returns their normalized
-     * values as an array.
+     * Helper method that does the forward propagation, using StrictMath if strict
+     * is true. Works through the hidden nodes one at a time instead of building an
+     * array for each layer, and the small array of inputs never escapes so the
+     * compiler keeps it in registers, so that it allocates nothing, since it runs on
+     * every tick of every bird. Adds up the products in the same order as a matrix
+     * product would, so the output is exactly the same. Only the first output node
+     * decides whether to jump, so the others are not computed.
      */
-    private double[] normalizeInputs(double birdY, double pipeY, double pipeX) {
+    private double forwardProp(double birdY, double pipeY, double pipeX, boolean strict) {
         double[] inputs = new double[Constants.INPUT_NODES];
         // range of birdy is the game height
         inputs[0] = (birdY - Constants.BIRD_R) / Constants.GAME_HEIGHT;
-        // range of pipeY is from min value of buffer to max value of game height - buffer and gap
+        // range of pipeY is from min value of buffer to max value of game height - buffer and gap, always with
+        // the standard gap so the input means the same on every difficulty and a network trained on one
+        // still flies another; with a smaller gap it can go a little past 1
         inputs[1] = (pipeY - Constants.PIPE_GAP_BUFFER) / (Constants.GAME_HEIGHT - 2 * Constants.PIPE_GAP_BUFFER - Constants.PIPE_GAP);
         // range of pipeX is scene width
         inputs[2] = pipeX / Constants.SCENE_WIDTH;
-        return inputs;
-    }
 
-    /**
-     * Calculates the product of two matrices. Takes in a left 2D array which is
-     * the weights and a right array that is the layer of nodes being multiplied.
-     * Returns the product as a 1D array.
-     */
-    private double[] dotProduct(double[][] left, double[] right) {
-        if (right != null && left != null) {
-            int leftRows = left.length;
-            int leftCols = left[0].length;
-            int rightRows = right.length;
-
-            if (leftCols == rightRows) {
-                double[] product = new double[leftRows];
-
-                for (int row = 0; row < leftRows; row++) {
-                    for (int i = 0; i < leftCols; i++) {
-                        product[row] += left[row][i] * right[i];
-                    }
-                }
-                return product;
+        double[] outputWeights = _syn1[JUMP_OUTPUT];
+        double output = 0;
+        for (int h = 0; h < _syn0.length; h++) {
+            double[] row = _syn0[h];
+            double sum = 0;
+            for (int i = 0; i < Constants.INPUT_NODES; i++) {
+                sum += row[i] * inputs[i];
             }
+            output += outputWeights[h] * NeuralNetwork.sigmoid(sum, strict);
         }
-        return null;
+        return NeuralNetwork.sigmoid(output, strict);
     }
 
     /**
-     * Sigmoid activation function. Takes the layer being processed in and performs
-     * the sigmoid function on each value and returns the result.
+     * Sigmoid activation function. Uses StrictMath if strict is true.
      */
-    private double[] sigmoid(double[] layer) {
-        if (layer != null) {
-            double[] activatedLayer = new double[layer.length];
-            for (int i = 0; i < layer.length; i++) {
-                activatedLayer[i] = 1 / (1 + Math.exp(-layer[i]));
-            }
-            return activatedLayer;
-        }
-        return null;
+    private static double sigmoid(double value, boolean strict) {
+        double exp = strict ? StrictMath.exp(-value) : Math.exp(-value);
+        return 1 / (1 + exp);
     }
 
     /**
@@ -131,6 +217,25 @@ public class NeuralNetwork {
         return _syn1;
     }
 
+    /**
+     * Returns all of the weights of syn0 followed by all of the weights of syn1,
+     * row by row, packed into a single array.
+     */
+    public double[] getWeights() {
+        int numWeights = _syn0.length * _syn0[0].length + _syn1.length * _syn1[0].length;
+        double[] weights = new double[numWeights];
+        int i = 0;
+        for (double[] row: _syn0) {
+            System.arraycopy(row, 0, weights, i, row.length);
+            i += row.length;
+        }
+        for (double[] row: _syn1) {
+            System.arraycopy(row, 0, weights, i, row.length);
+            i += row.length;
+        }
+        return weights;
+    }
+
     /**
      * Takes a 2D array and returns a copy of it.
      */
@@ -150,13 +255,32 @@ public class NeuralNetwork {
      * Then changes it to a new random value within a certain range from the previous.
      */
     public void mutate(double[][] weights) {
+        this.mutate(weights, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Same as the previous method but draws from the given random number generator.
+     * Does nothing if the generator is null.
+     */
+    public void mutate(double[][] weights, Random random) {
+        this.mutate(weights, random, Constants.MUTATION_RATE, Constants.MUTATION_CHANGE);
+    }
+
+    /**
+     * Same as the previous method but takes the chance of each weight being
+     * mutated and the maximum amount a mutated weight can change by.
+     */
+    public void mutate(double[][] weights, Random random, double rate, double change) {
+        if (random == null) {
+            return;
+        }
         for (int i = 0; i < weights.length; i++) {
             for (int j = 0; j < weights[i].length; j++) {
-                if (Math.random() < Constants.MUTATION_RATE) {
+                if (random.nextDouble() < rate) {
                     double currWeight = weights[i][j];
-                    double upperBound = Math.min(currWeight + Constants.MUTATION_CHANGE, Constants.WEIGHTS_MAX);
-                    double lowerBound = Math.max(currWeight - Constants.MUTATION_CHANGE, Constants.WEIGHTS_MIN);
-                    weights[i][j] = Math.random() * (upperBound - lowerBound) + lowerBound;
+                    double upperBound = Math.min(currWeight + change, Constants.WEIGHTS_MAX);
+                    double lowerBound = Math.max(currWeight - change, Constants.WEIGHTS_MIN);
+                    weights[i][j] = random.nextDouble() * (upperBound - lowerBound) + lowerBound;
                 }
             }
         }
@@ -0,0 +1,18 @@
+package evolution;
+
+/**
+ * Interface for the alternative optimizers a HeadlessPopulation can use to create
+ * each new generation instead of its built in elite selection and mutation. An
+ * optimizer works only on the packed weights of the birds (see NeuralNetwork's
+ * getWeights) and their fitness, so the population can keep evaluating the birds
+ * in parallel the same way whichever optimizer is used. Along with the fitness it
+ * is told how far each bird missed the middle of the gap it died at, averaged over
+ * the courses, to break the ties between the many birds that die on the same tick.
+ */
+public interface Optimizer {
+    public double[][] ask();
+
+    public void tell(int[] fitness, double[] misses);
+
+    public String getName();
+}
@@ -0,0 +1,42 @@
+package evolution;
+
+/**
+ * Parsers for the option values shared by the command line entry points, such as
+ * the Trainer, the Evaluator and the Sweep. Each one throws an
+ * IllegalArgumentException naming the option if the value is not valid, which
+ * the entry points print with their usage.
+ */
+public class Options {
+
+    /**
+     * Parses an option value that must be a positive integer.
+     */
+    public static int parsePositive(String option, String value) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a positive integer, not " + value);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(option + " must be positive");
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the value of the collisions option: tick to check for collisions on
+     * every tick, event to only check when the simulation predicts one could happen.
+     */
+    public static boolean parseCollisions(String value) {
+        switch (value) {
+            case "tick":
+                return false;
+            case "event":
+                return true;
+            default:
+                throw new IllegalArgumentException("--collisions must be tick or event");
+        }
+    }
+}
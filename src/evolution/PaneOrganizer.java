@@ -18,12 +18,28 @@ public class PaneOrganizer {
     private HBox _startPane;
     private Pane _gamePane;
     private HBox _controlPane;
+    private Replay _replay;
+    private Agent _agent;
+    private Config _config;
 
     /**
      * Constructor instantiates all of the panes, styles them, and sets up the initial
      * start menu.
      */
     public PaneOrganizer() {
+        this(null, null, new Config());
+    }
+
+    /**
+     * Constructor used when a replay, an agent or a config was passed to the
+     * program. Does the same as the previous constructor but adds buttons to the
+     * start menu to watch the replay and the agent, if they are not null, and
+     * starts every game with the given config.
+     */
+    public PaneOrganizer(Replay replay, Agent agent, Config config) {
+        _replay = replay;
+        _agent = agent;
+        _config = config;
         _root = new BorderPane();
         _startPane = new HBox(Constants.BUTTON_SPACING);
         _gamePane = new Pane();
@@ -54,6 +70,17 @@ public class PaneOrganizer {
         smart.setOnAction(new ClickHandler(true));
 
         _startPane.getChildren().addAll(manual, smart);
+
+        if (_replay != null) {
+            Button replay = new Button("Watch Replay");
+            replay.setOnAction(new ReplayHandler());
+            _startPane.getChildren().add(replay);
+        }
+        if (_agent != null) {
+            Button agent = new Button("Watch Agent");
+            agent.setOnAction(new AgentHandler());
+            _startPane.getChildren().add(agent);
+        }
         _startPane.setAlignment(Pos.CENTER);
 
         _root.setCenter(_startPane);
@@ -66,11 +93,38 @@ public class PaneOrganizer {
      * to hide the menu and show the game and stats.
      */
     private void startGame(boolean isSmart) {
+        this.showGame();
+
+        new FlappyBird(_gamePane, _controlPane, isSmart, _config);
+    }
+
+    /**
+     * Called when the replay button is pressed. Switches the panes and starts
+     * the game playing back the replay.
+     */
+    private void startReplay() {
+        this.showGame();
+
+        new FlappyBird(_gamePane, _controlPane, _replay, _config);
+    }
+
+    /**
+     * Called when the agent button is pressed. Switches the panes and starts
+     * the game with the bird flown by the agent.
+     */
+    private void startAgent() {
+        this.showGame();
+
+        new FlappyBird(_gamePane, _controlPane, _agent, _config);
+    }
+
+    /**
+     * Switches the panes to hide the menu and show the game and stats.
+     */
+    private void showGame() {
         _root.setCenter(null);
         _root.setTop(_gamePane);
         _root.setBottom(_controlPane);
-
-        new FlappyBird(_gamePane, _controlPane, isSmart);
     }
 
     /**
@@ -97,4 +151,24 @@ public class PaneOrganizer {
             startGame(_isSmart);
         }
     }
+
+    /**
+     * Handles the clicking of the replay button.
+     */
+    private class ReplayHandler implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent event) {
+            startReplay();
+        }
+    }
+
+    /**
+     * Handles the clicking of the agent button.
+     */
+    private class AgentHandler implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent event) {
+            startAgent();
+        }
+    }
 }
@@ -23,23 +23,25 @@ public class Pipe {
     public Pipe(double x, double prevY, Pane gamePane) {
         _gamePane = gamePane;
 
-        this.createRects(x, prevY);
+        this.createRects(x, Course.nextGapY(prevY, Math.random()));
     }
 
     /**
-     * Helper method that creates the two rectangles. Takes the x value of the pipe
-     * as a parameter and the previous pipe's gap y value. Generates the y value
-     * of the new gap randomly within a specific range from the previous one.
+     * Constructor used when replaying a recorded game. Instead of generating a
+     * random gap it uses the gap of the pipe with the given index in the course
+     * the replay was recorded on.
      */
-    private void createRects(double x, double prevY) {
-        // prevents bug where prevY value sometimes is larger than what the max value should be
-        if (prevY > Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - Constants.PIPE_GAP) {
-            prevY = Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - Constants.PIPE_GAP;
-        }
-        double lowBound = Math.max(Constants.PIPE_GAP_BUFFER, prevY - Constants.NEXT_GAP_RANGE);
-        double highBound = Math.min(prevY + Constants.NEXT_GAP_RANGE, Constants.GAME_HEIGHT - Constants.PIPE_GAP_BUFFER - Constants.PIPE_GAP);
-        double gapTop = Math.random() * (highBound - lowBound) + lowBound;
+    public Pipe(double x, Course course, int index, Pane gamePane) {
+        _gamePane = gamePane;
+
+        this.createRects(x, course.getGapY(index));
+    }
 
+    /**
+     * Helper method that creates the two rectangles. Takes the x value of the pipe
+     * and the y value of the top of its gap as parameters.
+     */
+    private void createRects(double x, double gapTop) {
         _top = new Rectangle(x, 0, Constants.PIPE_WIDTH, gapTop);
         _bottom = new Rectangle(x, gapTop + Constants.PIPE_GAP, Constants.PIPE_WIDTH, Constants.GAME_HEIGHT - gapTop - Constants.PIPE_GAP);
 
@@ -49,7 +51,7 @@ public class Pipe {
     }
 
     /**
-     * Called on each timeline tick to move both of the pipe's rectangles across
+     * Called on each tick of the game loop to move both of the pipe's rectangles across
      * the game window.
      */
     public void scroll() {
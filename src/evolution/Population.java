@@ -1,11 +1,9 @@
 package evolution;
 
-import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
-import javafx.scene.layout.VBox;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Class that contains and manages the functionality of all of the birds for the
@@ -18,36 +16,36 @@ public class Population implements Flappable {
     private SmartBird[] _birds;
     private Pane _gamePane;
     private ArrayList<Pipe> _pipes;
-    private int _generation, _numAlive, _currFit, _lastAvgFit, _lastBestFit, _bestFitEver;
-    private Label _genLabel, _aliveLabel, _currFitLabel, _lastAvgLabel, _lastBestLabel, _bestEverLabel;
+    private Config _config;
+    private int _maxFitness;
+    private int _generation, _numAlive, _currFit, _lastAvgFit, _lastBestFit, _bestFitEver, _numUnique;
+    private double _diversity;
 
     /**
      * Constructor takes the game pane and list of pipes as a parameter used to
-     * instantiate all of the birds. Instantiates all of the initial birds with
-     * randomized weights. Creates all of the labels for the stats.
+     * instantiate all of the birds, and the config that decides the size of the
+     * population, the birds' networks, selection and the max fitness. Instantiates
+     * all of the initial birds with randomized weights. Initializes all of the stats.
      */
-    public Population(Pane gamePane, ArrayList<Pipe> pipes) {
-        _birds = new SmartBird[Constants.POPULATION_SIZE];
+    public Population(Pane gamePane, ArrayList<Pipe> pipes, Config config) {
+        _birds = new SmartBird[config.getPopulationSize()];
 
         _gamePane = gamePane;
         _pipes = pipes;
+        _config = config;
+        _maxFitness = config.getMaxFitness();
 
         for (int i = 0; i < _birds.length; i++) {
-            _birds[i] = new SmartBird(gamePane, pipes);
+            _birds[i] = new SmartBird(gamePane, pipes, config);
         }
 
         _generation = 1;
-        _genLabel = new Label("Generation: " + _generation);
-        _numAlive = Constants.POPULATION_SIZE;
-        _aliveLabel = new Label("Alive: " + _numAlive);
+        _numAlive = _birds.length;
         _currFit = 0;
-        _currFitLabel = new Label("Current fitness " + _currFit);
         _lastAvgFit = 0;
-        _lastAvgLabel = new Label("Last gen avg fitness: " + _lastAvgFit);
         _lastBestFit = 0;
-        _lastBestLabel = new Label("Last gen best fitness: " + _lastBestFit);
         _bestFitEver = 0;
-        _bestEverLabel = new Label("Best fitness all time: " + _bestFitEver);
+        this.updateDiversity();
     }
 
     /**
@@ -91,13 +89,11 @@ public class Population implements Flappable {
                 bird.updateFitness();
                 _numAlive++;
                 _currFit = bird.getFitness();
-                if (_currFit >= Constants.MAX_FITNESS) {
+                if (_currFit >= _maxFitness) {
                     bird.kill();
                 }
             }
         }
-        _aliveLabel.setText("Alive: " + _numAlive);
-        _currFitLabel.setText("Current fitness " + _currFit);
         return allDead;
     }
 
@@ -110,35 +106,42 @@ public class Population implements Flappable {
     @Override
     public void reset() {
 
-        this.updateStats();
+        int[] fitness = new int[_birds.length];
+        for (int i = 0; i < _birds.length; i++) {
+            fitness[i] = _birds[i].getFitness();
+        }
 
-        ArrayList<SmartBird> bestBirds = this.getBestBirds();
+        this.updateStats(fitness);
+
+        ArrayList<SmartBird> bestBirds = this.getBestBirds(fitness);
 
         for (int i = 0; i < _birds.length; i++) {
             if (bestBirds.size() != 0) {
                 SmartBird selected = bestBirds.get(i % bestBirds.size());
-                _birds[i] = new SmartBird(_gamePane, _pipes, selected.getSyn0(), selected.getSyn1());
+                _birds[i] = new SmartBird(_gamePane, _pipes, _config, selected.getSyn0(), selected.getSyn1());
             }
             else {
-                _birds[i] = new SmartBird(_gamePane, _pipes);
+                _birds[i] = new SmartBird(_gamePane, _pipes, _config);
             }
         }
+
+        this.updateDiversity();
     }
 
     /**
      * Returns an ArrayList of the best performing birds whose weights should get
-     * passed on to the next generation. Loops through the list of birds ordered
-     * from greatest to least fitness and picks the first few. If those best fitness
+     * passed on to the next generation. Takes the fitness of every bird and selects
+     * the few best without sorting the whole generation. If those best fitness
      * birds made it past the minimum fitness they are selected to pass on their weights.
      */
-    private ArrayList<SmartBird> getBestBirds() {
-        int numBestBirds = (int) (_birds.length * Constants.SELECTION_RATE);
+    private ArrayList<SmartBird> getBestBirds(int[] fitness) {
+        int numBestBirds = (int) (_birds.length * _config.getSelectionRate());
 
         ArrayList<SmartBird> bestBirds = new ArrayList<SmartBird>();
 
-        for (int i = 0; i < numBestBirds; i++) {
-            if (_birds[i].getFitness() > Constants.MIN_FITNESS) {
-                bestBirds.add(_birds[i]);
+        for (int index: Selection.top(fitness, numBestBirds)) {
+            if (fitness[index] > Constants.MIN_FITNESS) {
+                bestBirds.add(_birds[index]);
             }
         }
 
@@ -146,41 +149,47 @@ public class Population implements Flappable {
     }
 
     /**
-     * Called at the end of each generation to sort the birds by fitness and update
-     * the stats for the generation.
+     * Called at the end of each generation to update the stats for the generation
+     * from the fitness of every bird.
      */
-    private void updateStats() {
-        Arrays.sort(_birds);
+    private void updateStats(int[] fitness) {
+        FitnessStats stats = new FitnessStats(fitness);
 
-        _lastBestFit = _birds[0].getFitness();
-        _lastBestLabel.setText("Last gen best fitness: " + _lastBestFit);
+        _lastBestFit = stats.getMax();
 
         if (_lastBestFit > _bestFitEver) {
             _bestFitEver = _lastBestFit;
-            _bestEverLabel.setText("Best fitness all time: " + _bestFitEver);
         }
 
-        int totalFitness = 0;
-
-        for (SmartBird bird: _birds) {
-            totalFitness += bird.getFitness();
-        }
-        _lastAvgFit = totalFitness / _birds.length;
-        _lastAvgLabel.setText("Last gen avg fitness: " + _lastAvgFit);
+        _lastAvgFit = (int) stats.getMean();
 
         _generation++;
-        _genLabel.setText("Generation: " + _generation);
     }
 
     /**
-     * Returns a pane with all of the relevant stats for the smart game to the
-     * game class.
+     * Measures the diversity of the generation's weights.
      */
-    @Override
-    public VBox getStats() {
-        VBox statsPane = new VBox();
+    private void updateDiversity() {
+        double[][] genomes = new double[_birds.length][];
+        for (int i = 0; i < _birds.length; i++) {
+            genomes[i] = _birds[i].getWeights();
+        }
+        DiversityIndex diversity = new DiversityIndex(genomes, ThreadLocalRandom.current());
+        _diversity = diversity.getDiversity();
+        _numUnique = diversity.getNumUnique();
+    }
 
-        statsPane.getChildren().addAll(_genLabel, _aliveLabel, _currFitLabel, _lastAvgLabel, _lastBestLabel, _bestEverLabel);
-        return statsPane;
+    /**
+     * Returns all of the relevant stats for the smart game to the game class.
+     */
+    @Override
+    public GameStats getStats() {
+        return new GameStats().add("Generation", _generation)
+                .add("Alive", _numAlive)
+                .add("Current fitness", _currFit)
+                .add("Last gen avg fitness", _lastAvgFit)
+                .add("Last gen best fitness", _lastBestFit)
+                .add("Best fitness all time", _bestFitEver)
+                .add("Diversity", String.format("%.2f (%d unique)", _diversity, _numUnique));
     }
 }
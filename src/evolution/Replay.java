@@ -0,0 +1,220 @@
+package evolution;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A replay file written by a ReplayRecorder. Creating a Replay only reads the small
+ * header of the file (the course seed, fitness, generation and rank) so that large
+ * numbers of replays can be listed cheaply. The weights and the jump decisions are
+ * only read when they are needed, and the decisions are streamed from the file one
+ * run at a time while the replay is played back.
+ */
+public class Replay {
+    public static final int MAGIC = 0x46425250;
+    // the only format, numbered after the unreleased ones before it so that their files are rejected
+    public static final int VERSION = 3;
+
+    private Path _path;
+    private long _seed;
+    private Simulation.Physics _physics;
+    private double _duration;
+    private int _fitness, _generation, _rank, _numDecisions, _numRuns;
+
+    /**
+     * Constructor takes the path of the replay file and reads its header.
+     */
+    public Replay(Path path) throws IOException {
+        _path = path;
+        try (DataInputStream in = this.openStream()) {
+            this.readHeader(in);
+        }
+    }
+
+    /**
+     * Opens a buffered stream at the start of the replay file.
+     */
+    private DataInputStream openStream() throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(_path)));
+    }
+
+    /**
+     * Reads the header from the stream, checking that the file really is a replay.
+     */
+    private void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(_path + " is not a replay file");
+        }
+        int version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException(_path + " has unsupported replay version " + version);
+        }
+        _seed = in.readLong();
+        _physics = Simulation.Physics.values()[in.readByte()];
+        _duration = in.readDouble();
+        _fitness = in.readInt();
+        _generation = in.readInt();
+        _rank = in.readInt();
+        _numDecisions = in.readInt();
+        _numRuns = in.readInt();
+    }
+
+    /**
+     * Returns the course the replay was recorded on.
+     */
+    public Course getCourse() {
+        return new Course(_seed, _numDecisions + 1);
+    }
+
+    /**
+     * Returns the seed of the course the replay was recorded on.
+     */
+    public long getSeed() {
+        return _seed;
+    }
+
+    /**
+     * Returns the physics the replay was recorded with.
+     */
+    public Simulation.Physics getPhysics() {
+        return _physics;
+    }
+
+    /**
+     * Returns the tick length the replay was recorded with.
+     */
+    public double getDuration() {
+        return _duration;
+    }
+
+    /**
+     * Returns the fitness the recorded bird reached.
+     */
+    public int getFitness() {
+        return _fitness;
+    }
+
+    /**
+     * Returns the generation of the recorded bird.
+     */
+    public int getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Returns the rank of the recorded bird within its generation, 0 being the best.
+     */
+    public int getRank() {
+        return _rank;
+    }
+
+    /**
+     * Reads and returns the neural network of the recorded bird. Throws an
+     * IOException if the weights do not fit a network.
+     */
+    public NeuralNetwork readNetwork() throws IOException {
+        try (DataInputStream in = this.openStream()) {
+            this.readHeader(in);
+            try {
+                return NeuralNetwork.withWeights(Replay.readWeights(in), Replay.readWeights(in));
+            }
+            catch (IllegalArgumentException e) {
+                throw new IOException(_path + " has malformed weights", e);
+            }
+        }
+    }
+
+    /**
+     * Opens the stream of jump decisions of the replay. The caller is responsible
+     * for closing it.
+     */
+    public Jumps openJumps() throws IOException {
+        DataInputStream in = this.openStream();
+        try {
+            this.readHeader(in);
+            Replay.readWeights(in);
+            Replay.readWeights(in);
+        }
+        catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new Jumps(in, _numRuns);
+    }
+
+    /**
+     * Reads the dimensions and then the weights of a matrix.
+     */
+    private static double[][] readWeights(DataInputStream in) throws IOException {
+        double[][] weights = new double[in.readShort()][in.readShort()];
+        for (double[] row: weights) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = in.readDouble();
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Stream of the jump decisions of a replay. Decodes one run at a time so only
+     * a few bytes of the replay are held in memory during playback.
+     */
+    public static class Jumps implements Closeable {
+        private DataInputStream _in;
+        private int _runsLeft, _remaining;
+        private boolean _current;
+
+        private Jumps(DataInputStream in, int numRuns) {
+            _in = in;
+            _runsLeft = numRuns;
+            _remaining = 0;
+            // flipped before the first run is used so that the first run is without jumps
+            _current = true;
+        }
+
+        /**
+         * Returns whether the bird jumped on the next tick. Returns false once all
+         * of the decisions have been used.
+         */
+        public boolean next() throws IOException {
+            while (_remaining == 0) {
+                if (_runsLeft == 0) {
+                    return false;
+                }
+                _remaining = this.readVarInt();
+                _runsLeft--;
+                _current = !_current;
+            }
+            _remaining--;
+            return _current;
+        }
+
+        /**
+         * Reads an int written 7 bits per byte by the ReplayRecorder.
+         */
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = _in.read();
+                if (b < 0) {
+                    throw new EOFException("Replay ended in the middle of a run");
+                }
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed run length in replay");
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package evolution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+/**
+ * Agent that plays back a replay. Instead of deciding from its inputs whether to
+ * jump, it reads the next recorded decision from the replay file, so the recorded
+ * bird's game is reproduced without running its network as long as it is flown on
+ * the course the replay was recorded on with the physics it was recorded with.
+ * Starts the replay from the beginning every time it is reset.
+ */
+public class ReplayAgent implements Agent {
+    private Replay _replay;
+    private Replay.Jumps _jumps;
+
+    /**
+     * Constructor takes the replay to play back.
+     */
+    public ReplayAgent(Replay replay) {
+        _replay = replay;
+        this.reset();
+    }
+
+    /**
+     * Opens the recorded decisions from the start, closing the previous stream.
+     */
+    @Override
+    public void reset() {
+        try {
+            if (_jumps != null) {
+                _jumps.close();
+            }
+            _jumps = _replay.openJumps();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns whether the recorded bird jumped on this tick.
+     */
+    @Override
+    public boolean jump(double birdY, double pipeY, double pipeX) {
+        try {
+            return _jumps.next();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a description of the recorded bird.
+     */
+    @Override
+    public String getDescription() {
+        return "Replay of generation " + _replay.getGeneration() + " rank " + _replay.getRank()
+                + " (fitness " + _replay.getFitness() + ")";
+    }
+
+    /**
+     * Returns the replay that is played back.
+     */
+    public Replay getReplay() {
+        return _replay;
+    }
+
+    /**
+     * Creates agents that play back a replay file.
+     */
+    public static class Provider implements AgentProvider {
+        @Override
+        public String getName() {
+            return "replay";
+        }
+
+        @Override
+        public String getUsage() {
+            return "replay:replay-file";
+        }
+
+        @Override
+        public Agent create(String argument, Simulation.Physics physics) throws IOException {
+            if (argument == null) {
+                throw new IllegalArgumentException("The replay agent needs a replay file");
+            }
+            Replay replay = new Replay(Paths.get(argument));
+            if (replay.getPhysics() != physics) {
+                throw new IllegalArgumentException(argument + " was recorded with "
+                        + replay.getPhysics().name().toLowerCase() + " physics and must be played back with them");
+            }
+            return new ReplayAgent(replay);
+        }
+    }
+}
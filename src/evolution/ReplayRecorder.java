@@ -0,0 +1,125 @@
+package evolution;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records the jump decisions a bird makes on every tick of a Simulation so they
+ * can be saved as a replay. The decisions are stored run-length encoded: the lengths
+ * of alternating runs of ticks without and with a jump, starting with a run without
+ * a jump (which can be empty). Birds jump in short bursts between long falls so
+ * this keeps a replay of a full 10000 tick game down to a few hundred bytes.
+ */
+public class ReplayRecorder {
+    private int[] _runs;
+    private int _numRuns, _runLength, _numDecisions;
+    private boolean _current;
+
+    /**
+     * Constructor creates an empty recording.
+     */
+    public ReplayRecorder() {
+        _runs = new int[64];
+        this.reset();
+    }
+
+    /**
+     * Clears the recording so the recorder can be used for another game.
+     */
+    public void reset() {
+        _numRuns = 0;
+        _runLength = 0;
+        _numDecisions = 0;
+        _current = false;
+    }
+
+    /**
+     * Called by the Simulation on every tick the bird decides whether or not to jump.
+     */
+    public void record(boolean jumped) {
+        if (jumped != _current) {
+            this.addRun(_runLength);
+            _current = jumped;
+            _runLength = 0;
+        }
+        _runLength++;
+        _numDecisions++;
+    }
+
+    /**
+     * Adds a finished run to the list of runs, growing it if it is full.
+     */
+    private void addRun(int length) {
+        if (_numRuns == _runs.length) {
+            _runs = Arrays.copyOf(_runs, _runs.length * 2);
+        }
+        _runs[_numRuns++] = length;
+    }
+
+    /**
+     * Returns the number of recorded decisions.
+     */
+    public int getNumDecisions() {
+        return _numDecisions;
+    }
+
+    /**
+     * Writes the recording to the file at the given path along with everything
+     * needed to play it back: the seed of the course, the physics and the tick
+     * length of the simulation it was recorded with, the fitness the bird reached, the generation
+     * and rank of the bird and its weights.
+     */
+    public void write(Path path, Simulation simulation, NeuralNetwork nn, int fitness, int generation, int rank)
+            throws IOException {
+        int numRuns = _numRuns + (_runLength > 0 ? 1 : 0);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(Replay.MAGIC);
+            out.writeShort(Replay.VERSION);
+            out.writeLong(simulation.getCourse().getSeed());
+            out.writeByte(simulation.getPhysics().ordinal());
+            out.writeDouble(simulation.getDuration());
+            out.writeInt(fitness);
+            out.writeInt(generation);
+            out.writeInt(rank);
+            out.writeInt(_numDecisions);
+            out.writeInt(numRuns);
+            ReplayRecorder.writeWeights(out, nn.getSyn0());
+            ReplayRecorder.writeWeights(out, nn.getSyn1());
+            for (int i = 0; i < _numRuns; i++) {
+                ReplayRecorder.writeVarInt(out, _runs[i]);
+            }
+            if (_runLength > 0) {
+                ReplayRecorder.writeVarInt(out, _runLength);
+            }
+        }
+    }
+
+    /**
+     * Writes the dimensions and then the weights of the matrix.
+     */
+    private static void writeWeights(DataOutputStream out, double[][] weights) throws IOException {
+        out.writeShort(weights.length);
+        out.writeShort(weights[0].length);
+        for (double[] row: weights) {
+            for (double weight: row) {
+                out.writeDouble(weight);
+            }
+        }
+    }
+
+    /**
+     * Writes a non negative int using 7 bits per byte with the high bit set on
+     * every byte except the last, so short runs take a single byte.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
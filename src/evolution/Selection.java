@@ -0,0 +1,204 @@
+package evolution;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Selection helpers that work directly on primitive fitness arrays. Finding the
+ * elite birds of a generation only needs the few best, so instead of sorting every
+ * bird this uses quickselect, which runs in O(n) on average, and then only sorts
+ * the elite. Every bird's fitness and index are packed into one long key so that
+ * no two keys are equal, which keeps the quickselect linear even when many birds
+ * die at the same tick and picks the same birds as a stable sort would.
+ */
+public class Selection {
+
+    /**
+     * Returns the indices of the count highest values, ordered from greatest to
+     * least. Birds with equal fitness are ordered by index, so among birds tied at
+     * the cut the ones with the lowest indices are selected, just like taking the
+     * first count birds of a stable sort from greatest to least.
+     */
+    public static int[] top(int[] fitness, int count) {
+        int n = fitness.length;
+        count = Math.min(count, n);
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = Selection.getKey(fitness[i], i);
+        }
+        if (count > 0 && count < n) {
+            Selection.selectKeys(keys, count);
+        }
+
+        // sort just the elite
+        Arrays.sort(keys, 0, count);
+        int[] top = new int[count];
+        for (int i = 0; i < count; i++) {
+            top[i] = Integer.MAX_VALUE - (int) keys[count - 1 - i];
+        }
+        assert Selection.matchesStableSort(fitness, top) : "Selection.top differs from a stable sort";
+        return top;
+    }
+
+    /**
+     * Returns the indices of every bird ordered from greatest to least fitness,
+     * with birds of equal fitness ordered from least to greatest tie breaker and
+     * then by index.
+     */
+    public static int[] rank(final int[] fitness, final double[] tieBreak) {
+        Integer[] sorted = new Integer[fitness.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byFitness = Integer.compare(fitness[b], fitness[a]);
+                return byFitness != 0 ? byFitness : Double.compare(tieBreak[a], tieBreak[b]);
+            }
+        });
+        int[] ranked = new int[sorted.length];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = sorted[i];
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns the key of a bird: its fitness in the high bits and its index
+     * reversed in the low bits, so a greater key means a greater fitness or an
+     * equal fitness and a lower index.
+     */
+    private static long getKey(int fitness, int index) {
+        return ((long) fitness << 32) | (Integer.MAX_VALUE - index);
+    }
+
+    /**
+     * Rearranges the keys so that the first count of them are the count greatest.
+     * The keys are all different, so a two way partition is enough.
+     */
+    private static void selectKeys(long[] keys, int count) {
+        int from = 0;
+        int to = keys.length;
+        while (to - from > 1) {
+            long pivot = Selection.median(keys[from], keys[(from + to) >>> 1], keys[to - 1]);
+            // [from, lt) greater than pivot, [lt, i) the pivot, (gt, to) less
+            int lt = from;
+            int gt = to - 1;
+            int i = from;
+            while (i <= gt) {
+                if (keys[i] > pivot) {
+                    Selection.swap(keys, lt++, i++);
+                }
+                else if (keys[i] < pivot) {
+                    Selection.swap(keys, i, gt--);
+                }
+                else {
+                    i++;
+                }
+            }
+            if (count < lt) {
+                to = lt;
+            }
+            else if (count > gt + 1) {
+                from = gt + 1;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks the result of top against the first birds of a stable sort of every
+     * bird from greatest to least fitness. Only run when assertions are enabled
+     * since it sorts the whole generation.
+     */
+    private static boolean matchesStableSort(final int[] fitness, int[] top) {
+        Integer[] sorted = new Integer[fitness.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        // object sorts are stable, so tied birds stay in index order
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(fitness[b], fitness[a]);
+            }
+        });
+        for (int i = 0; i < top.length; i++) {
+            if (top[i] != sorted[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the kth smallest (starting at 0) of the first count values.
+     * Reorders the values.
+     */
+    public static int kthSmallest(int[] values, int count, int k) {
+        int from = 0;
+        int to = count;
+        while (to - from > 1) {
+            int pivot = Selection.median(values[from], values[(from + to) >>> 1], values[to - 1]);
+            int lt = from;
+            int gt = to - 1;
+            int i = from;
+            while (i <= gt) {
+                if (values[i] < pivot) {
+                    Selection.swap(values, lt++, i++);
+                }
+                else if (values[i] > pivot) {
+                    Selection.swap(values, i, gt--);
+                }
+                else {
+                    i++;
+                }
+            }
+            if (k < lt) {
+                to = lt;
+            }
+            else if (k > gt) {
+                from = gt + 1;
+            }
+            else {
+                return pivot;
+            }
+        }
+        return values[from];
+    }
+
+    /**
+     * Returns the median of three values.
+     */
+    private static int median(int a, int b, int c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Returns the median of three keys.
+     */
+    private static long median(long a, long b, long c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Swaps two entries of an array of keys.
+     */
+    private static void swap(long[] array, int i, int j) {
+        long temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * Swaps two entries of an array.
+     */
+    private static void swap(int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+}
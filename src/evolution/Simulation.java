@@ -0,0 +1,543 @@
+package evolution;
+
+/**
+ * Headless version of a single bird's game used for training without JavaFX.
+ * Runs one bird on a course with the same physics and the same order of events
+ * as the game class flies smart and agent birds (fall, check for death, jump,
+ * scroll, check for death) and
+ * returns how many ticks it survived, which is its fitness. Keeps no state between
+ * runs so one simulation can be shared by all of the threads evaluating a generation.
+ */
+public class Simulation {
+    // pipes whose x value is less than this have already been passed by the bird
+    private static final double PASSED_PIPE_X = Constants.BIRD_X - Constants.PIPE_WIDTH - Constants.BIRD_R;
+
+    // how far inside the safe region the predicted position must stay for a check to be skipped
+    private static final double PREDICTION_MARGIN = 1e-4;
+    private static final long PASSED_PIPE_X_FIXED = (long) FixedPoint.BIRD_X - FixedPoint.PIPE_WIDTH - FixedPoint.BIRD_R;
+
+    private Course _course;
+    private int _maxTicks;
+    private Physics _physics;
+    private boolean _eventDriven;
+    private double _duration;
+    private int _durationMs, _gravityStep;
+    private int _gapFixed;
+
+    /**
+     * Constructor takes the course the birds fly, the config, which gives the tick
+     * budget (the fitness at which a bird is stopped just like the max fitness of
+     * the game) and the tick length, which physics to use, and whether the
+     * simulation is event driven: instead of checking for death on every tick, it
+     * predicts when the bird could next die and skips the checks until then or
+     * until it jumps. The results are exactly the same either way. Fixed point
+     * physics round the tick length to whole milliseconds.
+     */
+    public Simulation(Course course, Config config, Physics physics, boolean eventDriven) {
+        _course = course;
+        _maxTicks = config.getMaxFitness();
+        _physics = physics;
+        _eventDriven = eventDriven;
+        _duration = config.getDuration();
+        _durationMs = (int) Math.round(_duration * 1000);
+        _gravityStep = Constants.GRAVITY * _durationMs;
+        _gapFixed = course.getGapFixed();
+    }
+
+    /**
+     * Runs a full game for the bird with the given neural network and returns
+     * its fitness.
+     */
+    public int run(NeuralNetwork nn) {
+        return this.run(nn, null);
+    }
+
+    /**
+     * Same as the previous method but also records every jump decision the bird
+     * makes with the given recorder so that the game can be saved as a replay.
+     */
+    public int run(NeuralNetwork nn, ReplayRecorder recorder) {
+        return this.run(nn, recorder, null);
+    }
+
+    /**
+     * Same as the previous method but also fills in the given outcome with how
+     * the game ended, if it is not null.
+     */
+    public int run(NeuralNetwork nn, ReplayRecorder recorder, Outcome outcome) {
+        return this.run(new NetworkAgent(nn, _physics == Physics.FIXED), recorder, outcome);
+    }
+
+    /**
+     * Runs a full game for a bird flown by the given agent and returns its
+     * fitness. The agent is reset before the game starts.
+     */
+    public int run(Agent agent) {
+        return this.run(agent, null, null);
+    }
+
+    /**
+     * Same as the previous method but also fills in the given outcome with how
+     * the game ended, if it is not null.
+     */
+    public int run(Agent agent, Outcome outcome) {
+        return this.run(agent, null, outcome);
+    }
+
+    /**
+     * Same as the previous method but also records every jump decision of the
+     * agent with the given recorder, if it is not null.
+     */
+    public int run(Agent agent, ReplayRecorder recorder, Outcome outcome) {
+        agent.reset();
+        if (_physics == Physics.FIXED) {
+            return this.runFixed(agent, recorder, outcome);
+        }
+        return this.runDouble(agent, recorder, outcome);
+    }
+
+    /**
+     * Runs the game with the same double physics as the Bird class. If the
+     * simulation is event driven, the checks for death are skipped until the tick
+     * predicted by getNextCheck.
+     */
+    private int runDouble(Agent agent, ReplayRecorder recorder, Outcome outcome) {
+        double y = Constants.BIRD_START_Y;
+        double vy = 0;
+        int tick = 0;
+        int nearest = 0;
+        int fitness = 0;
+        Cause cause = null;
+        int nextCheck = 0;
+        int checks = 0;
+
+        while (fitness < _maxTicks) {
+            vy = vy + Constants.GRAVITY * _duration;
+            y = y + vy * _duration;
+            if (y <= Constants.BIRD_R) {
+                vy = 0;
+                y = Constants.BIRD_R;
+            }
+
+            nearest = this.getNearestPipe(nearest, tick);
+            boolean check = tick >= nextCheck;
+            if (check) {
+                checks++;
+                cause = this.getDeath(y, nearest, tick);
+                if (cause != null) {
+                    break;
+                }
+            }
+
+            boolean jumped = agent.jump(y, _course.getGapY(nearest), _course.getPipeX(nearest, tick));
+            if (jumped) {
+                vy = Constants.REBOUND_VELOCITY;
+            }
+            if (recorder != null) {
+                recorder.record(jumped);
+            }
+
+            tick++;
+            nearest = this.getNearestPipe(nearest, tick);
+            if (check) {
+                cause = this.getDeath(y, nearest, tick);
+                if (cause != null) {
+                    break;
+                }
+            }
+            fitness++;
+
+            if (_eventDriven) {
+                if (jumped || check) {
+                    nextCheck = this.getNextCheck(y, vy, tick, nearest);
+                }
+            }
+            else {
+                nextCheck = tick;
+            }
+        }
+
+        this.fillOutcome(outcome, fitness, cause, nearest, tick, checks, y);
+        return fitness;
+    }
+
+    /**
+     * Runs the game with fixed point physics. Follows exactly the same steps as
+     * the double version, but the bird's position and velocity and the pipes are
+     * integers in the units of the FixedPoint class, and network agents use strict
+     * math, so the game is bit for bit reproducible.
+     */
+    private int runFixed(Agent agent, ReplayRecorder recorder, Outcome outcome) {
+        int y = FixedPoint.BIRD_START_Y;
+        int vy = 0;
+        int tick = 0;
+        int nearest = 0;
+        int fitness = 0;
+        Cause cause = null;
+        int nextCheck = 0;
+        int checks = 0;
+
+        while (fitness < _maxTicks) {
+            vy = vy + _gravityStep;
+            y = y + vy * _durationMs;
+            if (y <= FixedPoint.BIRD_R) {
+                vy = 0;
+                y = FixedPoint.BIRD_R;
+            }
+
+            nearest = this.getNearestPipeFixed(nearest, tick);
+            boolean check = tick >= nextCheck;
+            if (check) {
+                checks++;
+                cause = this.getDeathFixed(y, nearest, tick);
+                if (cause != null) {
+                    break;
+                }
+            }
+
+            boolean jumped = agent.jump(FixedPoint.toPixels(y), FixedPoint.toPixels(_course.getGapYFixed(nearest)),
+                    FixedPoint.toPixels(_course.getPipeXFixed(nearest, tick)));
+            if (jumped) {
+                vy = FixedPoint.REBOUND_VELOCITY;
+            }
+            if (recorder != null) {
+                recorder.record(jumped);
+            }
+
+            tick++;
+            nearest = this.getNearestPipeFixed(nearest, tick);
+            if (check) {
+                cause = this.getDeathFixed(y, nearest, tick);
+                if (cause != null) {
+                    break;
+                }
+            }
+            fitness++;
+
+            if (_eventDriven) {
+                if (jumped || check) {
+                    nextCheck = this.getNextCheck(FixedPoint.toPixels(y), (double) vy / FixedPoint.VELOCITY_UNIT,
+                            tick, nearest);
+                }
+            }
+            else {
+                nextCheck = tick;
+            }
+        }
+
+        this.fillOutcome(outcome, fitness, cause, nearest, tick, checks, FixedPoint.toPixels(y));
+        return fitness;
+    }
+
+    /**
+     * Predicts the first tick at which the bird could die or hit the top of the
+     * screen if it does not jump, so that checking for death can be skipped until
+     * then. Takes the bird's position and velocity at the end of a tick, the tick
+     * counter and the nearest pipe. Until the bird jumps again its position after
+     * n more ticks is the parabola
+     * y(n) = y + DURATION * (n * vy + GRAVITY * DURATION * n * (n + 1) / 2),
+     * so the ticks at which it reaches the top, falls off the bottom, or leaves the
+     * gap of a pipe while it is level with it are all roots of quadratics. Everything is compared with a small margin so that rounding in the
+     * tick by tick integration can never make a skipped check matter.
+     */
+    private int getNextCheck(double y, double vy, int tick, int nearest) {
+        double c2 = Constants.GRAVITY * _duration * _duration / 2;
+        double c1 = _duration * vy + c2;
+
+        // ticks after this one at which the bird reaches the top or falls off the bottom
+        int horizon = Simulation.firstAbove(c2, c1, y - (Constants.GAME_HEIGHT + Constants.BIRD_R - PREDICTION_MARGIN), 1);
+        int top = Simulation.firstBelow(c2, c1, y - (Constants.BIRD_R + PREDICTION_MARGIN), 1);
+        if (top > 0) {
+            horizon = Math.min(horizon, top);
+        }
+
+        double safeTop = Constants.BIRD_R + PREDICTION_MARGIN;
+        double safeBottom = _course.getGap() - Constants.BIRD_R - PREDICTION_MARGIN;
+        for (int pipe = nearest; pipe < _course.getNumPipes(); pipe++) {
+            // the ticks during which the pipe is level with the bird, widened by one
+            // on each side since each tick checks the pipes before and after scrolling
+            double startX = _course.getPipeX(pipe, tick);
+            int first = (int) Math.floor((startX - Constants.BIRD_X - Constants.BIRD_R) / -Constants.SCROLL_SPEED) - 1;
+            int last = (int) Math.ceil((startX - PASSED_PIPE_X) / -Constants.SCROLL_SPEED) + 1;
+            first = Math.max(first, 1);
+            if (first >= horizon) {
+                break;
+            }
+            last = Math.min(last, horizon - 1);
+            if (last < first) {
+                continue;
+            }
+            if (safeTop > safeBottom) {
+                horizon = first;
+                break;
+            }
+            // first tick level with the pipe at which the bird is outside of the gap
+            double gapY = _course.getGapY(pipe);
+            int hit = Simulation.firstAbove(c2, c1, y - (gapY + safeBottom), first);
+            int hitTop = Simulation.firstBelow(c2, c1, y - (gapY + safeTop), first);
+            if (hitTop > 0) {
+                hit = Math.min(hit, hitTop);
+            }
+            if (hit <= last) {
+                horizon = hit;
+                break;
+            }
+        }
+        return tick + Math.max(horizon, 1) - 1;
+    }
+
+    /**
+     * Returns the smallest n >= from at which c2 * n^2 + c1 * n + c0 > 0, where
+     * c2 > 0 and from > 0.
+     */
+    private static int firstAbove(double c2, double c1, double c0, int from) {
+        if (c2 * from * from + c1 * from + c0 > 0) {
+            return from;
+        }
+        // otherwise from is between the roots, so the answer is just past the larger one
+        double disc = c1 * c1 - 4 * c2 * c0;
+        int n = disc < 0 ? from : Math.max(from, (int) Math.floor((-c1 + Math.sqrt(disc)) / (2 * c2)));
+        // correct for rounding in the root
+        while (n > from && c2 * (n - 1) * (n - 1) + c1 * (n - 1) + c0 > 0) {
+            n--;
+        }
+        while (c2 * n * n + c1 * n + c0 <= 0) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the smallest n >= from at which c2 * n^2 + c1 * n + c0 <= 0, where
+     * c2 > 0 and from > 0, or 0 if there is none.
+     */
+    private static int firstBelow(double c2, double c1, double c0, int from) {
+        double disc = c1 * c1 - 4 * c2 * c0;
+        if (disc < 0) {
+            return 0;
+        }
+        double high = (-c1 + Math.sqrt(disc)) / (2 * c2);
+        if (high < from - 1) {
+            return 0;
+        }
+        int n = Math.max(from, (int) Math.ceil((-c1 - Math.sqrt(disc)) / (2 * c2)));
+        // correct for rounding in the root
+        while (n > from && c2 * (n - 1) * (n - 1) + c1 * (n - 1) + c0 <= 0) {
+            n--;
+        }
+        while (c2 * n * n + c1 * n + c0 > 0) {
+            n++;
+            if (n > high + 1) {
+                return 0;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Fills in the outcome of a game if one was given. Takes the bird's final y
+     * value in pixels.
+     */
+    private void fillOutcome(Outcome outcome, int fitness, Cause cause, int nearest, int tick, int checks, double y) {
+        if (outcome != null) {
+            outcome._checks = checks;
+            outcome._miss = cause != null ? Math.abs(y - (_course.getGapY(nearest) + _course.getGap() / 2)) : 0;
+            outcome._fitness = fitness;
+            outcome._cause = cause != null ? cause : Cause.SURVIVED;
+            outcome._pipe = nearest;
+            outcome._score = this.getPipesPassed(tick);
+        }
+    }
+
+    /**
+     * Returns which physics the simulation uses.
+     */
+    public Physics getPhysics() {
+        return _physics;
+    }
+
+    /**
+     * Returns the course the birds fly.
+     */
+    public Course getCourse() {
+        return _course;
+    }
+
+    /**
+     * Returns the length of a tick in seconds.
+     */
+    public double getDuration() {
+        return _duration;
+    }
+
+    /**
+     * Returns the tick budget, the fitness at which a bird is stopped.
+     */
+    public int getMaxTicks() {
+        return _maxTicks;
+    }
+
+    /**
+     * Returns the index of the leftmost pipe that the bird has not already passed.
+     * Starts searching from the previous nearest pipe since pipes only move left.
+     */
+    private int getNearestPipe(int nearest, int tick) {
+        while (_course.getPipeX(nearest, tick) < PASSED_PIPE_X) {
+            nearest++;
+        }
+        return nearest;
+    }
+
+    /**
+     * Checks if the bird has collided with the nearest pipe or fallen off the screen.
+     * Returns what killed the bird, or null if it is still alive.
+     */
+    private Cause getDeath(double y, int nearest, int tick) {
+        if (y > Constants.GAME_HEIGHT + Constants.BIRD_R) {
+            return Cause.FELL;
+        }
+        double pipeX = _course.getPipeX(nearest, tick);
+        double gapY = _course.getGapY(nearest);
+        if (Simulation.hits(y, pipeX, 0, gapY)) {
+            return Cause.TOP_PIPE;
+        }
+        if (Simulation.hits(y, pipeX, gapY + _course.getGap(), Constants.GAME_HEIGHT)) {
+            return Cause.BOTTOM_PIPE;
+        }
+        return null;
+    }
+
+    /**
+     * Fixed point version of getNearestPipe.
+     */
+    private int getNearestPipeFixed(int nearest, int tick) {
+        while (_course.getPipeXFixed(nearest, tick) < PASSED_PIPE_X_FIXED) {
+            nearest++;
+        }
+        return nearest;
+    }
+
+    /**
+     * Fixed point version of getDeath.
+     */
+    private Cause getDeathFixed(int y, int nearest, int tick) {
+        if (y > FixedPoint.GAME_HEIGHT + FixedPoint.BIRD_R) {
+            return Cause.FELL;
+        }
+        long pipeX = _course.getPipeXFixed(nearest, tick);
+        int gapY = _course.getGapYFixed(nearest);
+        if (Simulation.hitsFixed(y, pipeX, 0, gapY)) {
+            return Cause.TOP_PIPE;
+        }
+        if (Simulation.hitsFixed(y, pipeX, gapY + _gapFixed, FixedPoint.GAME_HEIGHT)) {
+            return Cause.BOTTOM_PIPE;
+        }
+        return null;
+    }
+
+    /**
+     * Fixed point version of hits. Uses longs for the squared distance, which
+     * does not fit in an int.
+     */
+    private static boolean hitsFixed(int birdY, long pipeX, int top, int bottom) {
+        long nearestX = Math.max(pipeX, Math.min(FixedPoint.BIRD_X, pipeX + FixedPoint.PIPE_WIDTH));
+        long nearestY = Math.max(top, Math.min(birdY, bottom));
+        long dx = FixedPoint.BIRD_X - nearestX;
+        long dy = birdY - nearestY;
+        return dx * dx + dy * dy < FixedPoint.BIRD_R_SQUARED;
+    }
+
+    /**
+     * Returns the number of pipes the bird has passed after the given number of
+     * ticks, counting a pipe once its right edge reaches the bird like the score
+     * of the manual game.
+     */
+    private int getPipesPassed(int tick) {
+        int passed = 0;
+        while (passed < _course.getNumPipes()
+                && _course.getPipeX(passed, tick) + Constants.PIPE_WIDTH < Constants.BIRD_X - Constants.SCROLL_SPEED) {
+            passed++;
+        }
+        return passed;
+    }
+
+    /**
+     * Checks whether the bird's body at the given y value intersects the pipe
+     * rectangle spanning from the given x value and between the given top and bottom
+     * y values by finding the point in the rectangle closest to the center of the bird.
+     */
+    private static boolean hits(double birdY, double pipeX, double top, double bottom) {
+        double nearestX = Math.max(pipeX, Math.min(Constants.BIRD_X, pipeX + Constants.PIPE_WIDTH));
+        double nearestY = Math.max(top, Math.min(birdY, bottom));
+        double dx = Constants.BIRD_X - nearestX;
+        double dy = birdY - nearestY;
+        return dx * dx + dy * dy < Constants.BIRD_R * Constants.BIRD_R;
+    }
+
+    /**
+     * The physics a simulation can use: the same double arithmetic as the game,
+     * or bit for bit reproducible fixed point arithmetic.
+     */
+    public enum Physics {
+        DOUBLE, FIXED
+    }
+
+    /**
+     * What ended a bird's game.
+     */
+    public enum Cause {
+        SURVIVED, TOP_PIPE, BOTTOM_PIPE, FELL
+    }
+
+    /**
+     * Details of how a bird's game ended, filled in by the run method.
+     */
+    public static class Outcome {
+        private int _fitness, _score, _pipe, _checks;
+        private double _miss;
+        private Cause _cause;
+
+        /**
+         * Returns the number of ticks the bird survived.
+         */
+        public int getFitness() {
+            return _fitness;
+        }
+
+        /**
+         * Returns the number of pipes the bird passed.
+         */
+        public int getScore() {
+            return _score;
+        }
+
+        /**
+         * Returns the index of the pipe the bird was at when the game ended.
+         */
+        public int getPipe() {
+            return _pipe;
+        }
+
+        /**
+         * Returns the number of ticks on which the bird was checked for death.
+         */
+        public int getChecks() {
+            return _checks;
+        }
+
+        /**
+         * Returns how far in pixels the bird was from the middle of the gap of the
+         * pipe it was at when it died, or 0 if it survived.
+         */
+        public double getMiss() {
+            return _miss;
+        }
+
+        /**
+         * Returns what ended the game, SURVIVED if the bird reached the tick budget.
+         */
+        public Cause getCause() {
+            return _cause;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package evolution;
 import javafx.scene.layout.Pane;
 
 import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Subclass of Bird used for the smart game. Includes most of the same functionality
@@ -14,27 +15,29 @@ public class SmartBird extends Bird implements Comparable<SmartBird> {
 
     /**
      * Constructor used to instantiate SmartBirds with random weights. Takes only
-     * the game pane and the pipes as parameters just like parent class. Instantiates
-     * a NeuralNetwork with the default constructor and makes the bird translucent.
+     * the game pane, the pipes and the config as parameters just like parent class.
+     * Instantiates a NeuralNetwork with the hidden layer given by the config and
+     * makes the bird translucent.
      */
-    public SmartBird(Pane gamePane, ArrayList<Pipe> pipes) {
-        super(gamePane, pipes);
+    public SmartBird(Pane gamePane, ArrayList<Pipe> pipes, Config config) {
+        super(gamePane, pipes, config);
 
         _body.setOpacity(Constants.BIRD_OPACITY);
-        _nn = new NeuralNetwork();
+        _nn = new NeuralNetwork(config, ThreadLocalRandom.current());
         _fitness = 0;
     }
 
     /**
      * Constructor used to instantiate SmartBirds that inherit weights from the previous
      * generation. Does the same as the previous constructor but instantiates a neural
-     * network with the weights passed in from the previous bird.
+     * network with the weights passed in from the previous bird, mutated as the
+     * config says.
      */
-    public SmartBird(Pane gamePane, ArrayList<Pipe> pipes, double[][] syn0, double[][] syn1) {
-        super(gamePane, pipes);
+    public SmartBird(Pane gamePane, ArrayList<Pipe> pipes, Config config, double[][] syn0, double[][] syn1) {
+        super(gamePane, pipes, config);
 
         _body.setOpacity(Constants.BIRD_OPACITY);
-        _nn = new NeuralNetwork(syn0, syn1);
+        _nn = new NeuralNetwork(config, syn0, syn1, ThreadLocalRandom.current());
         _fitness = 0;
     }
 
@@ -80,6 +83,13 @@ public class SmartBird extends Bird implements Comparable<SmartBird> {
         return _nn.getSyn1();
     }
 
+    /**
+     * Returns all of the weights of the bird packed into a single array.
+     */
+    public double[] getWeights() {
+        return _nn.getWeights();
+    }
+
     /**
      * Kills the bird.
      */
@@ -94,6 +104,6 @@ public class SmartBird extends Bird implements Comparable<SmartBird> {
      */
     @Override
     public int compareTo(SmartBird other) {
-        return other.getFitness() - this.getFitness();
+        return Integer.compare(other.getFitness(), this.getFitness());
     }
 }
@@ -0,0 +1,329 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups the genomes of a generation into species of similar weights so that a
+ * new kind of network is not wiped out by the clones of the best bird before it
+ * has had a chance to improve. Each species has a representative genome and a
+ * genome joins the first species whose representative is within the distance
+ * threshold, or starts a new one. The species carry over from one generation to
+ * the next, and a child is first compared with the species of its parent, which
+ * it almost always still belongs to, so clustering a generation takes close to
+ * one distance per genome instead of one per genome and species. The threshold
+ * is adapted every generation to keep the number of species near the target, and
+ * there are never more than twice the target so the misses stay cheap too.
+ *
+ * Elites are selected with fitness sharing: each species gets a number of the
+ * elites in proportion to the mean fitness of its birds, so a large species of
+ * clones counts no more than a small species that does as well, and its elites
+ * are its birds with the highest fitness.
+ */
+public class Speciation {
+    private int _targetSpecies;
+    private double _threshold;
+    private List<double[]> _representatives;
+    private int[] _speciesOf;
+    private int[] _sizes;
+    private long _comparisons;
+
+    /**
+     * Constructor takes the number of species to aim for.
+     */
+    public Speciation(int targetSpecies) {
+        _targetSpecies = targetSpecies;
+        _threshold = Constants.SPECIES_THRESHOLD;
+        _representatives = new ArrayList<double[]>();
+        _speciesOf = new int[0];
+        _sizes = new int[0];
+    }
+
+    /**
+     * Assigns every genome of the current generation of the store to a species.
+     * Takes the species each genome's parent belonged to in the previous generation,
+     * or -1 for genomes without a parent, which is tried before any other species.
+     * Species left without any genomes are removed, the first genome of every species
+     * becomes its representative for the next generation and the threshold is adapted.
+     */
+    public void assign(GenomeStore genomes, int[] parentSpecies) {
+        int n = genomes.size();
+        int numWeights = genomes.getNumWeights();
+        int maxSpecies = 2 * _targetSpecies;
+        // furthest two genomes can be apart, so that distances are between 0 and 1
+        double maxDistance = Math.sqrt(numWeights) * (Constants.WEIGHTS_MAX - Constants.WEIGHTS_MIN);
+        _speciesOf = new int[n];
+        _comparisons = 0;
+
+        for (int i = 0; i < n; i++) {
+            int hint = parentSpecies[i];
+            int species = -1;
+            int nearest = -1;
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            if (hint >= 0 && hint < _representatives.size()) {
+                double distance = this.getDistance(genomes, i, hint) / maxDistance;
+                if (distance < _threshold) {
+                    species = hint;
+                }
+                nearest = hint;
+                nearestDistance = distance;
+            }
+            for (int s = 0; species == -1 && s < _representatives.size(); s++) {
+                if (s == hint) {
+                    continue;
+                }
+                double distance = this.getDistance(genomes, i, s) / maxDistance;
+                if (distance < _threshold) {
+                    species = s;
+                }
+                else if (distance < nearestDistance) {
+                    nearest = s;
+                    nearestDistance = distance;
+                }
+            }
+            if (species == -1 && _representatives.size() >= maxSpecies) {
+                species = nearest;
+            }
+            if (species == -1) {
+                species = _representatives.size();
+                _representatives.add(Speciation.copyWeights(genomes, i));
+            }
+            _speciesOf[i] = species;
+        }
+
+        this.compact(genomes);
+
+        if (_sizes.length > _targetSpecies) {
+            _threshold *= 1 + Constants.SPECIES_THRESHOLD_STEP;
+        }
+        else if (_sizes.length < _targetSpecies) {
+            _threshold /= 1 + Constants.SPECIES_THRESHOLD_STEP;
+        }
+    }
+
+    /**
+     * Removes the species without any genomes, renumbering the rest in the order
+     * they were first created, counts the genomes of each one and makes its first
+     * genome its representative.
+     */
+    private void compact(GenomeStore genomes) {
+        int[] counts = new int[_representatives.size()];
+        int[] first = new int[_representatives.size()];
+        Arrays.fill(first, -1);
+        for (int i = 0; i < _speciesOf.length; i++) {
+            int species = _speciesOf[i];
+            if (counts[species]++ == 0) {
+                first[species] = i;
+            }
+        }
+
+        int[] renumbered = new int[counts.length];
+        List<double[]> representatives = new ArrayList<double[]>();
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int s = 0; s < counts.length; s++) {
+            renumbered[s] = -1;
+            if (counts[s] > 0) {
+                renumbered[s] = representatives.size();
+                representatives.add(Speciation.copyWeights(genomes, first[s]));
+                sizes.add(counts[s]);
+            }
+        }
+        for (int i = 0; i < _speciesOf.length; i++) {
+            _speciesOf[i] = renumbered[_speciesOf[i]];
+        }
+        _representatives = representatives;
+        _sizes = new int[sizes.size()];
+        for (int s = 0; s < _sizes.length; s++) {
+            _sizes[s] = sizes.get(s);
+        }
+    }
+
+    /**
+     * Returns the euclidean distance between a genome and the representative of
+     * a species.
+     */
+    private double getDistance(GenomeStore genomes, int genome, int species) {
+        _comparisons++;
+        double[] representative = _representatives.get(species);
+        double sum = 0;
+        for (int j = 0; j < representative.length; j++) {
+            double diff = genomes.getWeight(genome, j) - representative[j];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Returns a copy of the packed weights of a genome.
+     */
+    private static double[] copyWeights(GenomeStore genomes, int genome) {
+        double[] weights = new double[genomes.getNumWeights()];
+        for (int j = 0; j < weights.length; j++) {
+            weights[j] = genomes.getWeight(genome, j);
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the indices of the elites of the generation that was just evaluated,
+     * grouped by species and ordered from greatest to least fitness within each one.
+     * Each species whose best bird made it past the minimum fitness gets a share of
+     * the given number of elites in proportion to the mean fitness of its birds,
+     * rounded by largest remainder, but never more than it has birds past the
+     * minimum fitness. The elites a species cannot fill go to the species with the
+     * next largest remainders that still have birds to spare, so fewer elites are
+     * only returned if there are fewer birds past the minimum fitness. The species
+     * of the best bird always gets at least one. Only birds past the minimum
+     * fitness are selected.
+     */
+    public int[] selectElites(int[] fitness, int numElites) {
+        int numSpecies = _sizes.length;
+        // group the genomes by species, keeping them in order within each one
+        int[] starts = new int[numSpecies + 1];
+        for (int s = 0; s < numSpecies; s++) {
+            starts[s + 1] = starts[s] + _sizes[s];
+        }
+        int[] members = new int[_speciesOf.length];
+        int[] next = Arrays.copyOf(starts, numSpecies);
+        for (int i = 0; i < _speciesOf.length; i++) {
+            members[next[_speciesOf[i]]++] = i;
+        }
+
+        double[] shares = new double[numSpecies];
+        int[] viable = new int[numSpecies];
+        double totalShare = 0;
+        int best = 0, bestFitness = Integer.MIN_VALUE;
+        for (int s = 0; s < numSpecies; s++) {
+            long total = 0;
+            for (int m = starts[s]; m < starts[s + 1]; m++) {
+                total += fitness[members[m]];
+                if (fitness[members[m]] > bestFitness) {
+                    best = s;
+                    bestFitness = fitness[members[m]];
+                }
+                if (fitness[members[m]] > Constants.MIN_FITNESS) {
+                    viable[s]++;
+                }
+            }
+            if (viable[s] > 0) {
+                shares[s] = (double) total / _sizes[s];
+                totalShare += shares[s];
+            }
+        }
+        if (totalShare == 0) {
+            return new int[0];
+        }
+
+        int[] allotted = new int[numSpecies];
+        double[] remainders = new double[numSpecies];
+        int remaining = numElites;
+        for (int s = 0; s < numSpecies; s++) {
+            double exact = numElites * shares[s] / totalShare;
+            allotted[s] = (int) exact;
+            remainders[s] = exact - allotted[s];
+            remaining -= allotted[s];
+        }
+        for (; remaining > 0; remaining--) {
+            int largest = 0;
+            for (int s = 1; s < numSpecies; s++) {
+                if (remainders[s] > remainders[largest]) {
+                    largest = s;
+                }
+            }
+            allotted[largest]++;
+            remainders[largest] = -1;
+        }
+        // the species of the best bird always keeps at least one elite
+        if (allotted[best] == 0 && numElites > 0) {
+            int most = 0;
+            for (int s = 1; s < numSpecies; s++) {
+                if (allotted[s] > allotted[most]) {
+                    most = s;
+                }
+            }
+            allotted[most]--;
+            allotted[best]++;
+        }
+        // hands the elites a species cannot fill to the others, next largest remainder first
+        int surplus = 0;
+        for (int s = 0; s < numSpecies; s++) {
+            if (allotted[s] > viable[s]) {
+                surplus += allotted[s] - viable[s];
+                allotted[s] = viable[s];
+            }
+        }
+        for (; surplus > 0; surplus--) {
+            int largest = -1;
+            for (int s = 0; s < numSpecies; s++) {
+                if (allotted[s] < viable[s] && (largest == -1 || remainders[s] > remainders[largest])) {
+                    largest = s;
+                }
+            }
+            if (largest == -1) {
+                break;
+            }
+            allotted[largest]++;
+            // behind every species that has not had an extra elite yet
+            remainders[largest] -= 1;
+        }
+
+        int[] elites = new int[numElites];
+        int count = 0;
+        for (int s = 0; s < numSpecies; s++) {
+            int k = allotted[s];
+            if (k == 0) {
+                continue;
+            }
+            int[] speciesFitness = new int[_sizes[s]];
+            for (int m = 0; m < speciesFitness.length; m++) {
+                speciesFitness[m] = fitness[members[starts[s] + m]];
+            }
+            for (int position: Selection.top(speciesFitness, k)) {
+                elites[count++] = members[starts[s] + position];
+            }
+        }
+        return Arrays.copyOf(elites, count);
+    }
+
+    /**
+     * Returns the species of the genome with the given index in the current generation.
+     */
+    public int getSpecies(int index) {
+        return _speciesOf[index];
+    }
+
+    /**
+     * Returns the number of species in the current generation.
+     */
+    public int getNumSpecies() {
+        return _sizes.length;
+    }
+
+    /**
+     * Returns the number of genomes in the largest species of the current generation.
+     */
+    public int getLargestSpecies() {
+        int largest = 0;
+        for (int size: _sizes) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    /**
+     * Returns the distance threshold that will be used for the next generation,
+     * as a fraction of the largest possible distance.
+     */
+    public double getThreshold() {
+        return _threshold;
+    }
+
+    /**
+     * Returns the mean number of distances computed per genome when the current
+     * generation was assigned to species.
+     */
+    public double getComparisonsPerGenome() {
+        return _speciesOf.length > 0 ? (double) _comparisons / _speciesOf.length : 0;
+    }
+}
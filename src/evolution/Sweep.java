@@ -0,0 +1,470 @@
+package evolution;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line entry point that searches for the settings that solve the game in
+ * the fewest generations. Every combination of the values given with --vary (grid
+ * search) or a number of random combinations (random search) is trained as an
+ * independent trial, with --repeats trials per combination using different seeds.
+ * The trials run concurrently on a fixed pool of threads, one trial per thread, and
+ * each trial evaluates its birds on its own thread so the pool is never oversubscribed.
+ * All of the trials fly the same seeded courses, one per generation, which are
+ * created once up front and only ever read, so every combination is compared on
+ * exactly the same games.
+ *
+ * Trials that look hopeless are stopped early: when the best fitness has not
+ * improved for --patience generations, or when the trial has run for --cutoff times
+ * as many generations as the fastest trial so far needed to solve the game, so
+ * it can no longer rank near the top. At the end the trials are ranked by the
+ * generation at which they solved the game and then by wall time, followed by the
+ * unsolved trials ranked by their best fitness, and the table is printed and can
+ * be written to a CSV file.
+ *
+ * Usage: java -cp flappybird.jar evolution.Sweep --vary key=v1,v2,... [--vary key=min..max]...
+ * [--search grid|random] [--trials n] [--repeats n] [--generations n] [--patience n] [--cutoff x]
+ * [--threads n] [--seed n] [--mutation fixed|one-fifth|stagnation] [--config path] [--set key=value]... [--out path]
+ */
+public class Sweep {
+    private Config _baseConfig;
+    private Map<String, String> _vary = new LinkedHashMap<String, String>();
+    private boolean _random = false;
+    private int _numTrials = 20;
+    private int _repeats = 1;
+    private int _generations = 200;
+    private int _patience = 30;
+    private double _cutoff = 2;
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    private long _seed = 0;
+    private AdaptiveMutation.Mode _mutationMode = AdaptiveMutation.Mode.FIXED;
+    private Path _out;
+    private List<Properties> _combinations;
+
+    // fewest generations any trial has needed to solve the game so far, 0 if none has
+    private AtomicInteger _bestSolved = new AtomicInteger();
+
+    /**
+     * Constructor takes the command line arguments and sets the options they specify.
+     * Options that are not specified keep their defaults.
+     */
+    public Sweep(String[] args) {
+        Path configPath = null;
+        Properties overrides = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--vary":
+                    Properties vary = new Properties();
+                    Config.parseOverride(value, vary);
+                    for (String key: vary.stringPropertyNames()) {
+                        if (!Config.getKeys().contains(key)) {
+                            throw new IllegalArgumentException("Unknown setting " + key + ", known settings are "
+                                    + Config.getKeys());
+                        }
+                        _vary.put(key, vary.getProperty(key));
+                    }
+                    break;
+                case "--search":
+                    if (!value.equals("grid") && !value.equals("random")) {
+                        throw new IllegalArgumentException("--search must be grid or random");
+                    }
+                    _random = value.equals("random");
+                    break;
+                case "--trials":
+                    _numTrials = Options.parsePositive(option, value);
+                    break;
+                case "--repeats":
+                    _repeats = Options.parsePositive(option, value);
+                    break;
+                case "--generations":
+                    _generations = Options.parsePositive(option, value);
+                    break;
+                case "--patience":
+                    _patience = Options.parsePositive(option, value);
+                    break;
+                case "--cutoff":
+                    _cutoff = Double.parseDouble(value);
+                    if (_cutoff != 0 && _cutoff < 1) {
+                        throw new IllegalArgumentException("--cutoff must be 0 (off) or at least 1");
+                    }
+                    break;
+                case "--threads":
+                    _numThreads = Options.parsePositive(option, value);
+                    break;
+                case "--seed":
+                    _seed = Long.parseLong(value);
+                    break;
+                case "--mutation":
+                    _mutationMode = AdaptiveMutation.Mode.valueOf(value.toUpperCase().replace('-', '_'));
+                    break;
+                case "--config":
+                    configPath = Paths.get(value);
+                    break;
+                case "--set":
+                    Config.parseOverride(value, overrides);
+                    break;
+                case "--out":
+                    _out = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (_vary.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to sweep, give at least one --vary");
+        }
+        try {
+            _baseConfig = Config.load(configPath, overrides);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read config file " + configPath + ": " + e.getMessage());
+        }
+        _combinations = this.getCombinations(new Random(_seed));
+        for (Properties combination: _combinations) {
+            // fails early if any of the values is invalid
+            _baseConfig.with(combination);
+        }
+    }
+
+    /**
+     * Returns the overrides of every combination of settings to try: every
+     * combination of the listed values for a grid search, or the number of trials
+     * given drawn at random for a random search, where a range min..max is sampled
+     * uniformly, as an integer for the settings that take integers.
+     */
+    private List<Properties> getCombinations(Random random) {
+        List<Properties> combinations = new ArrayList<Properties>();
+        if (_random) {
+            for (int t = 0; t < _numTrials; t++) {
+                Properties combination = new Properties();
+                for (Map.Entry<String, String> entry: _vary.entrySet()) {
+                    combination.setProperty(entry.getKey(), Sweep.sample(entry.getKey(), entry.getValue(), random));
+                }
+                combinations.add(combination);
+            }
+            return combinations;
+        }
+
+        combinations.add(new Properties());
+        for (Map.Entry<String, String> entry: _vary.entrySet()) {
+            if (entry.getValue().contains("..")) {
+                throw new IllegalArgumentException("Ranges like " + entry.getValue() + " need --search random");
+            }
+            List<Properties> expanded = new ArrayList<Properties>();
+            for (Properties combination: combinations) {
+                for (String value: entry.getValue().split(",")) {
+                    Properties next = new Properties();
+                    next.putAll(combination);
+                    next.setProperty(entry.getKey(), value.trim());
+                    expanded.add(next);
+                }
+            }
+            combinations = expanded;
+        }
+        return combinations;
+    }
+
+    /**
+     * Returns a random value of a setting from either a list of values or a
+     * range min..max, drawn as an integer if the setting takes integers and as a
+     * real number otherwise, even if both ends of the range are whole.
+     */
+    private static String sample(String key, String values, Random random) {
+        int range = values.indexOf("..");
+        if (range < 0) {
+            String[] choices = values.split(",");
+            return choices[random.nextInt(choices.length)].trim();
+        }
+        String min = values.substring(0, range).trim();
+        String max = values.substring(range + 2).trim();
+        if (Config.isInteger(key)) {
+            int low, high;
+            try {
+                low = Integer.parseInt(min);
+                high = Integer.parseInt(max);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " takes integers, so its range must be too, not " + values);
+            }
+            return Integer.toString(low + random.nextInt(high - low + 1));
+        }
+        double low = Double.parseDouble(min);
+        double high = Double.parseDouble(max);
+        // four decimal places keep the table readable and are plenty for any of the settings
+        return Double.toString(Math.round((low + random.nextDouble() * (high - low)) * 10000) / 10000.0);
+    }
+
+    /**
+     * Creates the trials and the shared courses, runs the trials on the thread
+     * pool and prints the ranked results.
+     */
+    public void run() throws IOException, InterruptedException {
+        Random random = new Random(_seed);
+        List<Trial> trials = new ArrayList<Trial>();
+        int maxTicks = 0;
+        for (Properties combination: _combinations) {
+            Config config = _baseConfig.with(combination);
+            maxTicks = Math.max(maxTicks, config.getMaxFitness());
+            for (int repeat = 0; repeat < _repeats; repeat++) {
+                trials.add(new Trial(combination, config, _seed + repeat));
+            }
+        }
+
+        // longer courses work for every trial since a trial only flies as far as its own tick budget
+        Course[] courses = new Course[_generations];
+        for (int i = 0; i < courses.length; i++) {
+            courses[i] = new Course(random.nextLong(), maxTicks);
+        }
+
+        System.out.println("Sweeping " + trials.size() + " trials of up to " + _generations + " generations on "
+                + _numThreads + " threads (seed " + _seed + ", " + (_random ? "random" : "grid") + " search, "
+                + _mutationMode.name().toLowerCase().replace('_', '-') + " mutation)");
+        System.out.println("Base settings: " + _baseConfig);
+
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(_numThreads);
+        try {
+            List<Future<Trial>> results = new ArrayList<Future<Trial>>();
+            for (Trial trial: trials) {
+                trial.setCourses(courses);
+                results.add(executor.submit(trial));
+            }
+            for (Future<Trial> result: results) {
+                result.get();
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Trial failed", e.getCause());
+        }
+        finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        Collections.sort(trials, new Comparator<Trial>() {
+            @Override
+            public int compare(Trial a, Trial b) {
+                if (a.isSolved() != b.isSolved()) {
+                    return a.isSolved() ? -1 : 1;
+                }
+                if (a.isSolved()) {
+                    if (a.getSolvedGeneration() != b.getSolvedGeneration()) {
+                        return Integer.compare(a.getSolvedGeneration(), b.getSolvedGeneration());
+                    }
+                }
+                else if (a.getBestFit() != b.getBestFit()) {
+                    return Integer.compare(b.getBestFit(), a.getBestFit());
+                }
+                return Long.compare(a.getNanos(), b.getNanos());
+            }
+        });
+
+        this.printTable(trials);
+        System.out.printf("Done in %.2f s%n", elapsed / 1e9);
+        if (_out != null) {
+            this.writeTable(trials);
+            System.out.println("Results written to " + _out);
+        }
+    }
+
+    /**
+     * Prints the ranked trials with the values of the settings that were varied.
+     */
+    private void printTable(List<Trial> trials) {
+        System.out.printf("%-5s %-40s %-6s %-7s %-12s %-9s %-8s %s%n", "rank", "settings", "seed", "solved",
+                "evaluations", "seconds", "best", "stop");
+        for (int rank = 0; rank < trials.size(); rank++) {
+            Trial trial = trials.get(rank);
+            System.out.printf("%-5d %-40s %-6d %-7s %-12d %-9.2f %-8d %s%n", rank + 1, trial.getDescription(_vary.keySet()),
+                    trial.getSeed(), trial.isSolved() ? Integer.toString(trial.getSolvedGeneration()) : "-",
+                    trial.getEvaluations(), trial.getNanos() / 1e9, trial.getBestFit(), trial.getStopReason());
+        }
+    }
+
+    /**
+     * Writes the ranked trials to the CSV file, with one column per varied setting.
+     */
+    private void writeTable(List<Trial> trials) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(_out, StandardCharsets.UTF_8)) {
+            out.write("rank");
+            for (String key: _vary.keySet()) {
+                out.write("," + key);
+            }
+            out.write(",seed,solved_generation,generations,evaluations,millis,best_fitness,stop");
+            out.newLine();
+            for (int rank = 0; rank < trials.size(); rank++) {
+                Trial trial = trials.get(rank);
+                out.write(Integer.toString(rank + 1));
+                for (String key: _vary.keySet()) {
+                    out.write("," + trial.getSettings().getProperty(key));
+                }
+                out.write("," + trial.getSeed() + "," + trial.getSolvedGeneration() + "," + trial.getGenerations()
+                        + "," + trial.getEvaluations() + "," + trial.getNanos() / 1000000 + "," + trial.getBestFit()
+                        + "," + trial.getStopReason());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * One training run with one combination of settings and one seed. Trains a
+     * HeadlessPopulation on the shared courses on the calling thread until the
+     * game is solved, the generations run out or the trial looks hopeless.
+     */
+    private class Trial implements Callable<Trial> {
+        private Properties _settings;
+        private Config _config;
+        private long _seed;
+        private Course[] _courses;
+        private int _solvedGeneration, _generations, _bestFit;
+        private long _evaluations, _nanos;
+        private String _stopReason;
+
+        public Trial(Properties settings, Config config, long seed) {
+            _settings = settings;
+            _config = config;
+            _seed = seed;
+        }
+
+        public void setCourses(Course[] courses) {
+            _courses = courses;
+        }
+
+        @Override
+        public Trial call() throws InterruptedException {
+            long startTime = System.nanoTime();
+            HeadlessPopulation population = new HeadlessPopulation(_config, new Random(_seed),
+                    new HeadlessPopulation.Settings().withMutation(new AdaptiveMutation(_mutationMode, _config)));
+            int lastImprovement = 0;
+            _stopReason = "limit";
+            for (int generation = 1; generation <= _courses.length; generation++) {
+                population.evaluate(new Simulation(_courses[generation - 1], _config, Simulation.Physics.DOUBLE, true),
+                        null, 1);
+                population.reset();
+                _generations = generation;
+                _evaluations += population.getNumEvaluated();
+                if (population.getBestFitEver() > _bestFit) {
+                    _bestFit = population.getBestFitEver();
+                    lastImprovement = generation;
+                }
+                if (population.getLastBestFit() >= _config.getMaxFitness()) {
+                    _solvedGeneration = generation;
+                    _stopReason = "solved";
+                    this.updateBestSolved(generation);
+                    break;
+                }
+                if (generation - lastImprovement >= _patience) {
+                    _stopReason = "stalled";
+                    break;
+                }
+                int bestSolved = _bestSolved.get();
+                if (_cutoff > 0 && bestSolved > 0 && generation >= _cutoff * bestSolved) {
+                    _stopReason = "cut off";
+                    break;
+                }
+            }
+            _nanos = System.nanoTime() - startTime;
+            return this;
+        }
+
+        /**
+         * Lowers the fewest generations any trial has needed to solve the game.
+         */
+        private void updateBestSolved(int generation) {
+            int bestSolved = _bestSolved.get();
+            while ((bestSolved == 0 || generation < bestSolved) && !_bestSolved.compareAndSet(bestSolved, generation)) {
+                bestSolved = _bestSolved.get();
+            }
+        }
+
+        /**
+         * Returns the values of the given settings as key=value pairs.
+         */
+        public String getDescription(Iterable<String> keys) {
+            StringBuilder description = new StringBuilder();
+            for (String key: keys) {
+                if (description.length() > 0) {
+                    description.append(' ');
+                }
+                description.append(key).append('=').append(_settings.getProperty(key));
+            }
+            return description.toString();
+        }
+
+        public Properties getSettings() {
+            return _settings;
+        }
+
+        public long getSeed() {
+            return _seed;
+        }
+
+        public boolean isSolved() {
+            return _solvedGeneration > 0;
+        }
+
+        public int getSolvedGeneration() {
+            return _solvedGeneration;
+        }
+
+        public int getGenerations() {
+            return _generations;
+        }
+
+        public int getBestFit() {
+            return _bestFit;
+        }
+
+        public long getEvaluations() {
+            return _evaluations;
+        }
+
+        public long getNanos() {
+            return _nanos;
+        }
+
+        public String getStopReason() {
+            return _stopReason;
+        }
+    }
+
+    public static void main(String[] argv) throws IOException, InterruptedException {
+        Sweep sweep;
+        try {
+            sweep = new Sweep(argv);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp flappybird.jar evolution.Sweep --vary key=v1,v2,... [--vary key=min..max]..."
+                    + " [--search grid|random] [--trials n] [--repeats n] [--generations n] [--patience n] [--cutoff x]"
+                    + " [--threads n] [--seed n] [--mutation fixed|one-fifth|stagnation] [--config path] [--set key=value]..."
+                    + " [--out path]");
+            System.exit(2);
+            return;
+        }
+        sweep.run();
+    }
+}
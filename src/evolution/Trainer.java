@@ -0,0 +1,562 @@
+package evolution;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Command line entry point for training without the JavaFX game. Runs the same
+ * evolution loop as the smart game at full speed on a HeadlessPopulation, with
+ * every generation flying a new seeded course. Prints throughput summaries as it
+ * goes and can write the best genome and the per generation stats to files.
+ * Only uses classes that do not depend on JavaFX so it can run on servers without it.
+ * The settings in the Config can be read from a properties file with --config and
+ * each one overridden with --set key=value; --population and --ticks are shortcuts
+ * for --set population-size=n and --set max-fitness=n. With --scheduler episodes
+ * every bird's game is its own episode on an EpisodeScheduler and replays are
+ * saved on separate I/O threads while the next generation is evaluated. With
+ * --curriculum the courses start easy and get closer to the --difficulty every
+ * time the best bird gets far enough, and only solving the final difficulty counts.
+ *
+ * Usage: java -cp flappybird.jar evolution.Trainer [--config path] [--set key=value]... [--population n] [--generations n]
+ * [--threads n] [--seed n] [--ticks n] [--report n] [--genome-out path] [--stats-out path]
+ * [--replay-dir path] [--replay-top n] [--dedupe off|exact|near] [--physics double|fixed] [--collisions tick|event]
+ * [--decision-table n] [--mutation fixed|one-fifth|stagnation] [--optimizer ga|es|cma]
+ * [--courses n] [--aggregate mean|min|pN] [--racing off|exact|z] [--genome-store heap|direct]
+ * [--scheduler chunks|episodes] [--io-threads n] [--species n] [--difficulty gap:range:space]
+ * [--curriculum n] [--curriculum-start gap:range:space]
+ */
+public class Trainer {
+    private Config _config;
+    private int _generations = 100;
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    private long _seed = System.nanoTime();
+    private int _reportInterval = 10;
+    private Path _genomeOut;
+    private Path _statsOut;
+    private Path _replayDir;
+    private int _replayTop = 1;
+    private DiversityIndex.Dedupe _dedupe = DiversityIndex.Dedupe.OFF;
+    private Simulation.Physics _physics = Simulation.Physics.DOUBLE;
+    private boolean _eventDriven = false;
+    private int _tableResolution = 0;
+    private AdaptiveMutation.Mode _mutationMode = AdaptiveMutation.Mode.FIXED;
+    private String _optimizerName = "ga";
+    private String _genomeStoreName = "heap";
+    private boolean _episodeScheduler = false;
+    private int _numIoThreads = 1;
+    // number of species to aim for, 0 to select the elites by fitness alone
+    private int _targetSpecies = 0;
+    private Difficulty _difficulty = Difficulty.STANDARD;
+    // number of levels from the start difficulty to the final one, 0 to train on the final one directly
+    private int _curriculumLevels = 0;
+    private Difficulty _curriculumStart = Difficulty.EASY;
+    private int _numCourses = 1;
+    private CourseAggregate _aggregate = CourseAggregate.parse("mean");
+    // standard errors used for the bounds when racing, infinity for exact bounds or 0 for no racing
+    private double _racing = Constants.RACING_ERRORS;
+    private boolean _racingGiven = false;
+
+    /**
+     * Constructor takes the command line arguments and sets the options they specify.
+     * Options that are not specified keep their defaults. Settings are applied in
+     * the order they are given, on top of the config file if there is one.
+     */
+    public Trainer(String[] args) {
+        Path configPath = null;
+        Properties overrides = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--config":
+                    configPath = Paths.get(value);
+                    break;
+                case "--set":
+                    Config.parseOverride(value, overrides);
+                    break;
+                case "--population":
+                    overrides.setProperty(Config.POPULATION_SIZE, value);
+                    break;
+                case "--generations":
+                    _generations = Options.parsePositive(option, value);
+                    break;
+                case "--threads":
+                    _numThreads = Options.parsePositive(option, value);
+                    break;
+                case "--seed":
+                    _seed = Long.parseLong(value);
+                    break;
+                case "--ticks":
+                    overrides.setProperty(Config.MAX_FITNESS, value);
+                    break;
+                case "--report":
+                    _reportInterval = Options.parsePositive(option, value);
+                    break;
+                case "--genome-out":
+                    _genomeOut = Paths.get(value);
+                    break;
+                case "--stats-out":
+                    _statsOut = Paths.get(value);
+                    break;
+                case "--replay-dir":
+                    _replayDir = Paths.get(value);
+                    break;
+                case "--replay-top":
+                    _replayTop = Options.parsePositive(option, value);
+                    break;
+                case "--dedupe":
+                    _dedupe = DiversityIndex.Dedupe.valueOf(value.toUpperCase());
+                    break;
+                case "--physics":
+                    _physics = Simulation.Physics.valueOf(value.toUpperCase());
+                    break;
+                case "--collisions":
+                    _eventDriven = Options.parseCollisions(value);
+                    break;
+                case "--decision-table":
+                    _tableResolution = Options.parsePositive(option, value);
+                    if (_tableResolution > Constants.MAX_DECISION_TABLE_RESOLUTION) {
+                        throw new IllegalArgumentException("--decision-table must be at most "
+                                + Constants.MAX_DECISION_TABLE_RESOLUTION);
+                    }
+                    break;
+                case "--mutation":
+                    _mutationMode = AdaptiveMutation.Mode.valueOf(value.toUpperCase().replace('-', '_'));
+                    break;
+                case "--optimizer":
+                    if (!value.equals("ga") && !value.equals("es") && !value.equals("cma")) {
+                        throw new IllegalArgumentException("--optimizer must be ga, es or cma");
+                    }
+                    _optimizerName = value;
+                    break;
+                case "--genome-store":
+                    if (!value.equals("heap") && !value.equals("direct")) {
+                        throw new IllegalArgumentException("--genome-store must be heap or direct");
+                    }
+                    _genomeStoreName = value;
+                    break;
+                case "--scheduler":
+                    if (!value.equals("chunks") && !value.equals("episodes")) {
+                        throw new IllegalArgumentException("--scheduler must be chunks or episodes");
+                    }
+                    _episodeScheduler = value.equals("episodes");
+                    break;
+                case "--io-threads":
+                    _numIoThreads = Options.parsePositive(option, value);
+                    break;
+                case "--species":
+                    _targetSpecies = Integer.parseInt(value);
+                    if (_targetSpecies < 0) {
+                        throw new IllegalArgumentException("--species must not be negative");
+                    }
+                    break;
+                case "--difficulty":
+                    _difficulty = Difficulty.parse(value);
+                    break;
+                case "--curriculum":
+                    _curriculumLevels = Integer.parseInt(value);
+                    if (_curriculumLevels < 0) {
+                        throw new IllegalArgumentException("--curriculum must not be negative");
+                    }
+                    break;
+                case "--curriculum-start":
+                    _curriculumStart = Difficulty.parse(value);
+                    break;
+                case "--courses":
+                    _numCourses = Options.parsePositive(option, value);
+                    break;
+                case "--aggregate":
+                    _aggregate = CourseAggregate.parse(value);
+                    break;
+                case "--racing":
+                    _racing = Trainer.parseRacing(value);
+                    _racingGiven = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (_targetSpecies > 0 && !_optimizerName.equals("ga")) {
+            throw new IllegalArgumentException("--species only works with the ga optimizer");
+        }
+        // racing bounds assume the elites are the top of the whole generation, which is
+        // not how the other optimizers or speciation choose, so it is off by default there
+        if (!_optimizerName.equals("ga") || _targetSpecies > 0) {
+            if (_racingGiven && _racing > 0) {
+                throw new IllegalArgumentException("--racing only works with the ga optimizer without --species");
+            }
+            _racing = 0;
+        }
+        if (_replayDir != null && (_curriculumLevels > 0 || !_difficulty.equals(Difficulty.STANDARD))) {
+            throw new IllegalArgumentException("--replay-dir only works on the standard difficulty the game plays");
+        }
+        if (_tableResolution > 0 && (_curriculumLevels > 0 || !_difficulty.equals(Difficulty.STANDARD))) {
+            throw new IllegalArgumentException("--decision-table only works on the standard difficulty its cells cover");
+        }
+        try {
+            _config = Config.load(configPath, overrides);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read config file " + configPath + ": " + e.getMessage());
+        }
+        // every bird's table is allocated in full and kept until the next generation
+        long tableBytes = DecisionTable.getBytes(_tableResolution) * _config.getPopulationSize();
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        if (_tableResolution > 0 && tableBytes > maxHeap * Constants.MAX_DECISION_TABLE_HEAP_FRACTION) {
+            throw new IllegalArgumentException(String.format("--decision-table %d needs %d MB for %d birds, more than"
+                    + " %.0f%% of the %d MB heap; lower the resolution or the population or raise -Xmx",
+                    _tableResolution, tableBytes >> 20, _config.getPopulationSize(),
+                    100 * Constants.MAX_DECISION_TABLE_HEAP_FRACTION, maxHeap >> 20));
+        }
+    }
+
+    /**
+     * Parses the value of the racing option: off, exact or the positive number of
+     * standard errors used for statistical bounds.
+     */
+    private static double parseRacing(String value) {
+        if (value.equals("off")) {
+            return 0;
+        }
+        if (value.equals("exact")) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double errors = Double.parseDouble(value);
+        if (!(errors > 0)) {
+            throw new IllegalArgumentException("--racing must be off, exact or a positive number of standard errors");
+        }
+        return errors;
+    }
+
+    /**
+     * Creates the optimizer selected with the optimizer option, or returns null
+     * for the population's own elite selection and mutation.
+     */
+    private Optimizer createOptimizer(Random random) {
+        switch (_optimizerName) {
+            case "es":
+                return new EvolutionStrategy(_config, random);
+            case "cma":
+                return new CmaEvolutionStrategy(_config, random);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Creates the genome store selected with the genome store option.
+     */
+    private GenomeStore createGenomeStore() {
+        if (_genomeStoreName.equals("direct")) {
+            return new DirectGenomeStore(_config);
+        }
+        return new HeapGenomeStore(_config);
+    }
+
+    /**
+     * Returns the total number of garbage collections and the total time spent in
+     * them in milliseconds since the JVM started, as reported by its collectors.
+     */
+    private static long[] getGarbageCollections() {
+        long[] collections = new long[2];
+        for (GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections[0] += Math.max(0, collector.getCollectionCount());
+            collections[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return collections;
+    }
+
+    /**
+     * Runs the training loop. Each generation gets a new course from the seeded
+     * random number generator, is evaluated in parallel and then reset to create
+     * the next generation.
+     */
+    public void train() throws IOException, InterruptedException {
+        Random random = new Random(_seed);
+        int maxTicks = _config.getMaxFitness();
+        HeadlessPopulation population = new HeadlessPopulation(_config, random, new HeadlessPopulation.Settings()
+                .withDedupe(_dedupe)
+                .withDecisionTables(_tableResolution)
+                .withMutation(new AdaptiveMutation(_mutationMode, _config))
+                .withOptimizer(this.createOptimizer(random))
+                .withGenomeStore(this.createGenomeStore())
+                .withSpeciation(_targetSpecies > 0 ? new Speciation(_targetSpecies) : null));
+        Curriculum curriculum = _curriculumLevels > 0 ? new Curriculum(_curriculumStart, _difficulty, _curriculumLevels)
+                : null;
+        ExecutorService executor = null;
+        EpisodeScheduler scheduler = null;
+        if (_episodeScheduler) {
+            scheduler = new EpisodeScheduler(_numThreads, _numIoThreads);
+        }
+        else {
+            executor = Executors.newFixedThreadPool(_numThreads);
+        }
+        if (_replayDir != null) {
+            Files.createDirectories(_replayDir);
+        }
+
+        System.out.println("Training " + _config.getPopulationSize() + " birds for " + _generations + " generations on "
+                + _numThreads + (scheduler != null ? " episode" : "") + " threads (seed " + _seed + ", " + maxTicks + " ticks, "
+                + _physics.name().toLowerCase() + " physics, " + _optimizerName + " optimizer, "
+                + _mutationMode.name().toLowerCase().replace('_', '-') + " mutation, " + _aggregate + " of " + _numCourses
+                + " courses" + (_racing > 0 && _numCourses > 1 ? " with " + (Double.isInfinite(_racing) ? "exact"
+                        : "z=" + _racing) + " racing" : "")
+                + (_targetSpecies > 0 ? ", " + _targetSpecies + " species" : "") + ", difficulty " + _difficulty
+                + (curriculum != null ? " in " + _curriculumLevels + " levels from " + _curriculumStart : "") + ")");
+        System.out.println("Settings: " + _config);
+        GenomeStore genomes = population.getGenomeStore();
+        System.out.printf("Genome store: %s, %d bytes per bird%s (%.1f MB in total)%n", genomes.getName(),
+                genomes.getBytesPerBird(), genomes instanceof DirectGenomeStore ? " off the heap, allocated once"
+                        : " on the heap, allocated again every generation",
+                genomes.getBytesPerBird() * (double) genomes.size() / (1 << 20));
+        long[] startCollections = Trainer.getGarbageCollections();
+
+        long totalTicks = 0;
+        long startTime = System.nanoTime();
+        long reportTicks = 0;
+        long reportTime = startTime;
+        int solvedGeneration = 0;
+        long solvedTime = 0;
+        long evaluations = 0, solvedEvaluations = 0;
+        long finalTime = curriculum != null ? -1 : 0;
+
+        try (BufferedWriter stats = this.openStats()) {
+            for (int generation = 1; generation <= _generations; generation++) {
+                long genStart = System.nanoTime();
+                DiversityIndex diversity = population.getDiversity();
+                Speciation speciation = population.getSpeciation();
+                int numSpecies = speciation != null ? speciation.getNumSpecies() : 0;
+                int largestSpecies = speciation != null ? speciation.getLargestSpecies() : 0;
+                double comparisons = speciation != null ? speciation.getComparisonsPerGenome() : 0;
+                Difficulty difficulty = curriculum != null ? curriculum.getDifficulty() : _difficulty;
+                boolean finalDifficulty = curriculum == null || curriculum.isFinal();
+                if (finalDifficulty && finalTime < 0) {
+                    finalTime = System.nanoTime() - startTime;
+                }
+                Simulation[] simulations = new Simulation[_numCourses];
+                for (int i = 0; i < simulations.length; i++) {
+                    simulations[i] = new Simulation(new Course(random.nextLong(), maxTicks, difficulty), _config, _physics,
+                            _eventDriven);
+                }
+                long ticks = scheduler != null ? population.evaluate(simulations, _aggregate, _racing, scheduler)
+                        : population.evaluate(simulations, _aggregate, _racing, executor, _numThreads);
+                double tableHitRate = population.getTableHitRate();
+                double tableAgreement = population.getTableAgreement();
+                if (_replayDir != null) {
+                    this.writeReplays(population, simulations[0], generation, scheduler);
+                }
+                if (scheduler != null) {
+                    // stops on a failed replay as soon as it is noticed instead of when the scheduler is closed
+                    scheduler.checkIo();
+                }
+                population.reset();
+                long genTime = System.nanoTime() - genStart;
+
+                totalTicks += ticks;
+                reportTicks += ticks;
+                evaluations += population.getCourseRuns();
+                if (curriculum != null) {
+                    curriculum.update(generation, population.getLastBestFit(), maxTicks);
+                }
+                if (solvedGeneration == 0 && finalDifficulty && population.getLastBestFit() >= maxTicks) {
+                    solvedGeneration = generation;
+                    solvedTime = System.nanoTime() - startTime;
+                    solvedEvaluations = evaluations;
+                }
+                AdaptiveMutation mutation = population.getMutation();
+                if (stats != null) {
+                    stats.write(generation + "," + population.getLastBestFit() + "," + population.getLastAvgFit()
+                            + "," + ticks + "," + genTime / 1000000 + "," + population.getNumEvaluated()
+                            + "," + diversity.getNumUnique() + "," + diversity.getNumNearUnique()
+                            + "," + diversity.getMeanDistance() + "," + tableHitRate + "," + tableAgreement
+                            + "," + population.getLastSuccessRate() + "," + mutation.getRate() + "," + mutation.getChange()
+                            + "," + population.getCourseRuns() + "," + population.getCourseRunsSkipped()
+                            + "," + population.getBirdsStopped()
+                            + "," + numSpecies + "," + largestSpecies + "," + (curriculum != null ? curriculum.getLevel() : 0)
+                            + "," + difficulty.getGap() + "," + difficulty.getGapRange() + "," + difficulty.getXSpace());
+                    stats.newLine();
+                }
+                if (generation % _reportInterval == 0 || generation == _generations) {
+                    long now = System.nanoTime();
+                    System.out.printf("gen %d  best %d  avg %d  median %d  best ever %d  diversity %.2f  unique %d"
+                            + "  %.0f bird-ticks/s", generation, population.getLastBestFit(), population.getLastAvgFit(),
+                            population.getLastStats().getMedian(), population.getBestFitEver(), diversity.getDiversity(), diversity.getNumUnique(),
+                            Trainer.perSecond(reportTicks, now - reportTime));
+                    if (_tableResolution > 0) {
+                        System.out.printf("  table hits %.1f%%  agreement %.2f%%", 100 * tableHitRate, 100 * tableAgreement);
+                    }
+                    if (speciation != null) {
+                        System.out.printf("  species %d (largest %d, threshold %.3f, %.2f distances/bird)", numSpecies,
+                                largestSpecies, speciation.getThreshold(), comparisons);
+                    }
+                    if (curriculum != null) {
+                        System.out.printf("  level %d/%d (%s)", curriculum.getLevel(), _curriculumLevels,
+                                curriculum.getDifficulty());
+                    }
+                    if (_mutationMode != AdaptiveMutation.Mode.FIXED) {
+                        System.out.printf("  mutation %.3f/%.3f", mutation.getRate(), mutation.getChange());
+                    }
+                    if (_numCourses > 1) {
+                        System.out.printf("  course runs %d (%d skipped, %d birds stopped)", population.getCourseRuns(),
+                                population.getCourseRunsSkipped(), population.getBirdsStopped());
+                    }
+                    if (scheduler != null) {
+                        System.out.printf("  queue %.1f/%.1f ms  io pending %d", scheduler.getLastMeanDelay(),
+                                scheduler.getLastMaxDelay(), scheduler.getPendingIo());
+                    }
+                    System.out.println();
+                    reportTicks = 0;
+                    reportTime = now;
+                }
+            }
+        }
+        finally {
+            if (scheduler != null) {
+                scheduler.close();
+            }
+            else {
+                executor.shutdown();
+            }
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+        long episodes = (long) _config.getPopulationSize() * _generations;
+        System.out.printf("Done in %.2f s: %d bird-ticks (%.0f/s), %d episodes (%.0f/s), best fitness %d%n",
+                elapsed / 1e9, totalTicks, Trainer.perSecond(totalTicks, elapsed), episodes,
+                Trainer.perSecond(episodes, elapsed), population.getBestFitEver());
+        long[] collections = Trainer.getGarbageCollections();
+        System.out.printf("Garbage collection: %d collections taking %d ms%n", collections[0] - startCollections[0],
+                collections[1] - startCollections[1]);
+        if (scheduler != null) {
+            System.out.printf("Episode queueing delay: mean %.2f ms, max %.2f ms over %d episodes;"
+                    + " %d I/O tasks waited %.2f ms on average (max %.2f ms) and ran for %.0f ms%n",
+                    scheduler.getMeanDelay(), scheduler.getMaxDelay(), scheduler.getEpisodes(), scheduler.getIoTasks(),
+                    scheduler.getIoMeanDelay(), scheduler.getIoMaxDelay(), scheduler.getIoTime());
+        }
+        if (curriculum != null) {
+            if (curriculum.isFinal()) {
+                System.out.printf("Reached the final difficulty %s at generation %d after %.2f s%n", _difficulty,
+                        curriculum.getReachedAt(_curriculumLevels), finalTime / 1e9);
+            }
+            else {
+                System.out.println("Reached level " + curriculum.getLevel() + " of " + _curriculumLevels + " ("
+                        + curriculum.getDifficulty() + ") but not the final difficulty " + _difficulty);
+            }
+        }
+        if (solvedGeneration > 0) {
+            System.out.printf("Solved the difficulty %s (best fitness %d) at generation %d after %d evaluations and %.2f s"
+                    + "%s%n", _difficulty, maxTicks, solvedGeneration, solvedEvaluations, solvedTime / 1e9,
+                    curriculum != null ? String.format(", %.2f s of them on the final difficulty",
+                            (solvedTime - finalTime) / 1e9) : "");
+        }
+        else {
+            System.out.println("Not solved in " + _generations + " generations");
+        }
+
+        if (_genomeOut != null) {
+            GenomeFile.write(_genomeOut, Collections.singletonList(population.getBestEver()));
+            System.out.println("Best genome written to " + _genomeOut);
+        }
+    }
+
+    /**
+     * Writes replays of the best birds of the generation that was just evaluated.
+     * The birds are run again with a recorder, which costs a single game each.
+     * If there is a scheduler, copies of their networks are recorded and written
+     * on its I/O threads so the next generation does not wait for them.
+     */
+    private void writeReplays(HeadlessPopulation population, final Simulation simulation, final int generation,
+            EpisodeScheduler scheduler) throws IOException {
+        int[] top = population.getTop(_replayTop);
+        final NeuralNetwork[] networks = new NeuralNetwork[top.length];
+        for (int rank = 0; rank < top.length; rank++) {
+            networks[rank] = population.getNetwork(top[rank]);
+            if (scheduler != null) {
+                networks[rank] = NeuralNetwork.fromWeights(networks[rank].getWeights());
+            }
+        }
+        if (scheduler == null) {
+            this.recordReplays(networks, simulation, generation);
+            return;
+        }
+        scheduler.submitIo(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                Trainer.this.recordReplays(networks, simulation, generation);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs the given networks, ordered by rank, on the simulation with a recorder
+     * and writes each one's replay to the replay directory.
+     */
+    private void recordReplays(NeuralNetwork[] networks, Simulation simulation, int generation) throws IOException {
+        ReplayRecorder recorder = new ReplayRecorder();
+        for (int rank = 0; rank < networks.length; rank++) {
+            recorder.reset();
+            NeuralNetwork nn = networks[rank];
+            int fitness = simulation.run(nn, recorder);
+            Path path = _replayDir.resolve(String.format("gen-%06d-rank-%d.rpl", generation, rank));
+            recorder.write(path, simulation, nn, fitness, generation, rank);
+        }
+    }
+
+    /**
+     * Opens the stats file and writes its header, or returns null if no stats
+     * file was requested.
+     */
+    private BufferedWriter openStats() throws IOException {
+        if (_statsOut == null) {
+            return null;
+        }
+        BufferedWriter stats = Files.newBufferedWriter(_statsOut, StandardCharsets.UTF_8);
+        stats.write("generation,best_fitness,avg_fitness,ticks,millis,evaluated,unique,near_unique,mean_distance,table_hit_rate,table_agreement,success_rate,mutation_rate,mutation_change,course_runs,course_runs_skipped,birds_stopped,species,largest_species,level,gap,gap_range,x_space");
+        stats.newLine();
+        return stats;
+    }
+
+    /**
+     * Returns the rate of the given count over the given number of nanoseconds.
+     */
+    private static double perSecond(long count, long nanos) {
+        return nanos > 0 ? count * 1e9 / nanos : 0;
+    }
+
+    public static void main(String[] argv) throws IOException, InterruptedException {
+        Trainer trainer;
+        try {
+            trainer = new Trainer(argv);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp flappybird.jar evolution.Trainer [--config path] [--set key=value]..."
+                    + " [--population n] [--generations n]"
+                    + " [--threads n] [--seed n] [--ticks n] [--report n] [--genome-out path] [--stats-out path]"
+                    + " [--replay-dir path] [--replay-top n] [--dedupe off|exact|near] [--physics double|fixed] [--collisions tick|event]"
+                    + " [--decision-table n] [--mutation fixed|one-fifth|stagnation] [--optimizer ga|es|cma]"
+                    + " [--courses n] [--aggregate mean|min|pN] [--racing off|exact|z] [--genome-store heap|direct]"
+                    + " [--scheduler chunks|episodes] [--io-threads n] [--species n] [--difficulty gap:range:space]"
+                    + " [--curriculum n] [--curriculum-start gap:range:space]");
+            System.exit(2);
+            return;
+        }
+        trainer.train();
+    }
+}